@@ -0,0 +1,83 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Estado compartido por los benchmarks: los tres archivos generados con
+ * {@link GeneradorLogs}. Se generan una sola vez por combinación de parámetros
+ * en java.io.tmpdir/analizador-bench y se reutilizan entre forks y corridas.
+ *
+ * Para medir a 100M de líneas: {@code -p lineas=100000000} (unos 13 GB en disco).
+ */
+public class DatosBench {
+
+    @State(Scope.Benchmark)
+    public static class Logs {
+
+        /** Líneas aproximadas del log del simulador (registros más ruido). */
+        @Param({"10000", "1000000"})
+        public long lineas;
+
+        @Param({"20"})
+        public int rooms;
+
+        @Param({"0.5"})
+        public double duty;
+
+        @Param({"0.05"})
+        public double ruido;
+
+        Path simLog;
+        Path httpLog;
+        SimulationConfig config;
+
+        @Setup(Level.Trial)
+        public void generar() throws IOException {
+            GeneradorLogs.Parametros p = new GeneradorLogs.Parametros();
+            p.rooms = rooms;
+            p.duty = duty;
+            p.ruido = ruido;
+            p.ticks = Math.max(1, Math.round(lineas * (1 - ruido) / rooms));
+
+            Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "analizador-bench", p.toString());
+            Path listo = dir.resolve(".completo");
+            if (!Files.exists(listo)) {
+                GeneradorLogs.generar(dir, p);
+                Files.createFile(listo);
+            }
+            simLog = dir.resolve(GeneradorLogs.SIM_LOG);
+            httpLog = dir.resolve(GeneradorLogs.HTTP_LOG);
+            config = SimulationConfig.load(dir.resolve(GeneradorLogs.CONFIG), new ObjectMapper());
+        }
+
+        /** Log del simulador ya acumulado, para las etapas que vienen después. */
+        SimAggregator ingerir() throws IOException {
+            SimAggregator sim = SimAggregator.create(config);
+            SimIngest.serial(simLog, sim, new SimIngest.Sidecars());
+            return sim;
+        }
+    }
+
+    /** Líneas leídas por iteración: JMH las reporta como throughput (líneas/s). */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contador {
+        public long lineas;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lineas = 0;
+        }
+    }
+}
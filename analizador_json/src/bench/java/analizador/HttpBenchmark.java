@@ -0,0 +1,50 @@
+package analizador;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Etapa 3: prefiltro de POST /switch/ y deduplicación del access log, en líneas/s. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpBenchmark {
+
+    @State(Scope.Thread)
+    public static class Destino {
+        SimAggregator sim;
+
+        @Setup(Level.Trial)
+        public void crear(DatosBench.Logs logs) {
+            sim = SimAggregator.create(logs.config);
+        }
+    }
+
+    @Benchmark
+    public long filtroYDedup(DatosBench.Logs logs, Destino destino, DatosBench.Contador contador)
+            throws IOException {
+        HttpInteractions http = new HttpInteractions();
+        long lineas = 0;
+        try (LineScanner scanner = LineScanner.open(logs.httpLog)) {
+            while (scanner.next()) {
+                http.acceptLine(scanner, destino.sim);
+                lineas++;
+            }
+        }
+        contador.lineas += lineas;
+        return http.dedup.size();
+    }
+}
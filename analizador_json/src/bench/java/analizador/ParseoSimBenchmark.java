@@ -0,0 +1,111 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapa 2: parseo de líneas del simulador.
+ * <ul>
+ *   <li>{@code parseoLinea}: una línea por operación con SimRecordReader, sobre una
+ *       muestra en memoria; con {@code -prof gc} da los bytes asignados por registro.</li>
+ *   <li>{@code parseoReadTree}: la misma muestra con {@code MAPPER.readTree}, como se
+ *       parseaba antes, leyendo los mismos siete campos; es la referencia de
+ *       {@code parseoLinea}.</li>
+ *   <li>{@code ingestaCompleta}: el archivo entero (prefiltro, parseo y acumulación),
+ *       reportado en líneas/s.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseoSimBenchmark {
+
+    private static final int MUESTRA = 100_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @State(Scope.Thread)
+    public static class Muestra {
+        byte[][] lineas;
+        int[] inicio;
+        int siguiente;
+        final SimRecordReader reader = new SimRecordReader();
+        final SimRecord rec = new SimRecord();
+
+        @Setup(Level.Trial)
+        public void cargar(DatosBench.Logs logs) throws IOException {
+            List<byte[]> out = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            try (LineScanner scanner = LineScanner.open(logs.simLog)) {
+                while (out.size() < MUESTRA && scanner.next()) {
+                    if (scanner.contains(LogPatterns.STDOUT_LOGGER)) continue;
+                    int brace = scanner.lastIndexOf((byte) '{');
+                    if (brace < 0) continue;
+                    out.add(Arrays.copyOfRange(scanner.buffer(), scanner.start(), scanner.end()));
+                    starts.add(brace - scanner.start());
+                }
+            }
+            lineas = out.toArray(new byte[0][]);
+            inicio = starts.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    @Benchmark
+    public boolean parseoLinea(Muestra m) throws IOException {
+        int i = m.siguiente;
+        m.siguiente = i + 1 == m.lineas.length ? 0 : i + 1;
+        byte[] line = m.lineas[i];
+        int start = m.inicio[i];
+        try {
+            return m.reader.read(line, start, line.length - start, m.rec) && m.rec.heaterOn;
+        } catch (IOException e) {
+            return false; // Línea rota a propósito: igual que en el analizador, se descarta
+        }
+    }
+
+    @Benchmark
+    public double parseoReadTree(Muestra m) {
+        int i = m.siguiente;
+        m.siguiente = i + 1 == m.lineas.length ? 0 : i + 1;
+        byte[] line = m.lineas[i];
+        int start = m.inicio[i];
+        try {
+            JsonNode root = MAPPER.readTree(line, start, line.length - start);
+            if (!root.has("T_C") || !root.has("roomId")) return 0;
+            return root.get("roomId").asInt()
+                    + root.get("T_C").asDouble()
+                    + (root.path("heaterOn").asBoolean(false) ? 1 : 0)
+                    + root.path("energy_Wh").asDouble(0)
+                    + root.path("lowKWh").asDouble(0)
+                    + root.path("highKWh").asDouble(0)
+                    + root.path("simTimeMs").asLong();
+        } catch (IOException e) {
+            return 0; // Línea rota a propósito: igual que en el analizador, se descarta
+        }
+    }
+
+    @Benchmark
+    public long ingestaCompleta(DatosBench.Logs logs, DatosBench.Contador contador) throws IOException {
+        SimAggregator sim = logs.ingerir();
+        contador.lineas += sim.totalLines;
+        return sim.validJson;
+    }
+}
@@ -0,0 +1,40 @@
+package analizador;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Etapa 4: barrido del pico de consumo simultáneo sobre el log ya acumulado. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PicoBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Acumulado {
+        SimAggregator sim;
+
+        @Setup(Level.Trial)
+        public void ingerir(DatosBench.Logs logs) throws IOException {
+            sim = logs.ingerir();
+        }
+    }
+
+    @Benchmark
+    public double picoSimultaneo(Acumulado acumulado) {
+        return acumulado.sim.peakLoad().peakKWh;
+    }
+}
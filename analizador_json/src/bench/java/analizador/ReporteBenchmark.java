@@ -0,0 +1,51 @@
+package analizador;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/** Etapa 5: reporte final de cada analizador (pico, percentiles y formato), sin E/S real. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReporteBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Acumulado {
+        SimAggregator sim;
+        SimulationConfig config;
+        final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+        @Setup(Level.Trial)
+        public void ingerir(DatosBench.Logs logs) throws IOException {
+            config = logs.config;
+            sim = logs.ingerir();
+            new HttpInteractions().ingest(logs.httpLog, sim);
+        }
+    }
+
+    @Benchmark
+    public void reporteAnalizador(Acumulado a) {
+        MetricPipeline.imprimirReporte(a.sim, a.config, Metrica.ANALIZADOR, Estilo.PLANO, a.out);
+    }
+
+    @Benchmark
+    public void reporteParametrizado(Acumulado a) {
+        MetricPipeline.imprimirReporte(a.sim, a.config, Metrica.PARAMETRIZADO, Estilo.EMOJI, a.out);
+    }
+}
@@ -0,0 +1,240 @@
+package analizador;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Generador determinístico de simulation_config.json, simulator.json.log y
+ * simulator-access.json.log para los benchmarks y los tests. Con los mismos
+ * parámetros y semilla produce siempre los mismos bytes.
+ *
+ * Uso:
+ * <pre>
+ *   java -cp target/benchmarks.jar analizador.GeneradorLogs &lt;dir&gt; &lt;rooms&gt; &lt;ticks&gt; [duty] [ruido] [semilla]
+ * </pre>
+ * El log del simulador tiene rooms * ticks registros más las líneas de ruido.
+ */
+public final class GeneradorLogs {
+
+    static final String CONFIG = "simulation_config.json";
+    static final String SIM_LOG = "simulator.json.log";
+    static final String HTTP_LOG = "simulator-access.json.log";
+
+    private static final long TICK_MS = 1000;
+    /** Ticks de un ciclo encendido/apagado del heater. */
+    private static final int HEATER_PERIOD = 60;
+    /** °C por tick que cambia la temperatura con el heater encendido o apagado. */
+    private static final double CAMBIO_TEMP = 0.06;
+    private static final long EPOCH_INICIO = Instant.parse("2024-05-01T10:00:00Z").toEpochMilli();
+    private static final DateTimeFormatter FECHA_LOG =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter FECHA_HTTP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    /** Parámetros del set generado. */
+    static final class Parametros {
+        int rooms = 20;
+        long ticks = 500;
+        /** Fracción del tiempo con el heater encendido. */
+        double duty = 0.5;
+        /** Fracción de las líneas del log del simulador que no son registros. */
+        double ruido = 0.05;
+        long semilla = 42;
+
+        @Override
+        public String toString() {
+            return rooms + "r-" + ticks + "t-" + duty + "d-" + ruido + "n-" + semilla + "s";
+        }
+    }
+
+    private GeneradorLogs() { }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Uso: java analizador.GeneradorLogs <dir> <rooms> <ticks> [duty] [ruido] [semilla]");
+            return;
+        }
+        Parametros p = new Parametros();
+        Path dir = Paths.get(args[0]);
+        p.rooms = Integer.parseInt(args[1]);
+        p.ticks = Long.parseLong(args[2]);
+        if (args.length > 3) p.duty = Double.parseDouble(args[3]);
+        if (args.length > 4) p.ruido = Double.parseDouble(args[4]);
+        if (args.length > 5) p.semilla = Long.parseLong(args[5]);
+
+        long t0 = System.nanoTime();
+        generar(dir, p);
+        System.out.printf("Generado %s en %s (%.1f s)%n", p, dir.toAbsolutePath(), (System.nanoTime() - t0) / 1e9);
+    }
+
+    static void generar(Path dir, Parametros p) throws IOException {
+        if (p.ruido < 0 || p.ruido >= 1) throw new IllegalArgumentException("ruido tiene que estar en [0, 1)");
+        Files.createDirectories(dir);
+        escribirConfig(dir.resolve(CONFIG), p);
+        escribirSim(dir.resolve(SIM_LOG), p);
+        escribirHttp(dir.resolve(HTTP_LOG), p);
+    }
+
+    // ===============================================================
+    // simulation_config.json
+    // ===============================================================
+    private static void escribirConfig(Path path, Parametros p) throws IOException {
+        try (Writer w = writer(path)) {
+            w.write("{\"units\":[");
+            for (int id = 1; id <= p.rooms; id++) {
+                if (id > 1) w.write(',');
+                w.write("{\"room\":{\"id\":" + id
+                        + ",\"expectedTemp\":\"" + temperaturaEsperada(id) + "\""
+                        + ",\"energy\":\"" + textoEnergia(id) + "\"}}");
+            }
+            // Con todos encendidos a la vez se supera el máximo, así el pico es interesante
+            w.write("],\"simulacion\":{\"maxEnergy\":\"" + Math.max(1, p.rooms * 1.75 * p.duty) + " kWh\"}}\n");
+        }
+    }
+
+    private static int temperaturaEsperada(int id) {
+        return 20 + id % 4;
+    }
+
+    /** Los tres formatos que acepta SimulationConfig.parseEnergy. */
+    private static String textoEnergia(int id) {
+        switch (id % 3) {
+            case 0:  return "2 kWh";
+            case 1:  return "1500 Wh";
+            default: return "1,5 kWh";
+        }
+    }
+
+    private static double energiaKWh(int id) {
+        return id % 3 == 0 ? 2.0 : 1.5;
+    }
+
+    // ===============================================================
+    // simulator.json.log
+    // ===============================================================
+    private static void escribirSim(Path path, Parametros p) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(p.semilla);
+        double[] temp = new double[p.rooms + 1];
+        double[] energiaWh = new double[p.rooms + 1];
+        double[] lowKWh = new double[p.rooms + 1];
+        double[] highKWh = new double[p.rooms + 1];
+        int[] fase = new int[p.rooms + 1];
+        for (int id = 1; id <= p.rooms; id++) {
+            temp[id] = temperaturaEsperada(id) - 1 + rnd.nextDouble();
+            fase[id] = rnd.nextInt(HEATER_PERIOD);
+        }
+
+        int ticksEncendido = (int) Math.round(p.duty * HEATER_PERIOD);
+        double ruidoPorRegistro = p.ruido / (1 - p.ruido);
+        double deudaRuido = 0;
+        StringBuilder line = new StringBuilder(256);
+
+        try (Writer w = writer(path)) {
+            for (long t = 0; t < p.ticks; t++) {
+                long simTime = t * TICK_MS;
+                String fecha = FECHA_LOG.format(Instant.ofEpochMilli(EPOCH_INICIO + simTime));
+                // Tarifa alta de 8 a 22 h de tiempo simulado
+                long hora = (simTime / 3_600_000) % 24;
+                boolean tarifaAlta = hora >= 8 && hora < 22;
+
+                for (int id = 1; id <= p.rooms; id++) {
+                    boolean on = (t + fase[id]) % HEATER_PERIOD < ticksEncendido;
+                    // Sube y baja lo mismo a lo largo de un ciclo, con ruido y una leve vuelta a la esperada
+                    temp[id] += (on ? CAMBIO_TEMP * (1 - p.duty) : -CAMBIO_TEMP * p.duty)
+                            + (rnd.nextDouble() - 0.5) * 0.02
+                            + 0.001 * (temperaturaEsperada(id) - temp[id]);
+                    if (on) {
+                        double wh = energiaKWh(id) * 1000 * TICK_MS / 3_600_000.0;
+                        energiaWh[id] += wh;
+                        if (tarifaAlta) highKWh[id] += wh / 1000; else lowKWh[id] += wh / 1000;
+                    }
+
+                    line.setLength(0);
+                    line.append(fecha).append(" INFO sim - {\"roomId\":").append(id).append(",\"T_C\":");
+                    decimal(line, temp[id], 3).append(",\"heaterOn\":").append(on).append(",\"energy_Wh\":");
+                    decimal(line, energiaWh[id], 3).append(",\"simTimeMs\":").append(simTime).append(",\"lowKWh\":");
+                    decimal(line, lowKWh[id], 6).append(",\"highKWh\":");
+                    decimal(line, highKWh[id], 6).append("}\n");
+                    w.append(line);
+
+                    deudaRuido += ruidoPorRegistro;
+                    while (deudaRuido >= 1) {
+                        w.write(lineaRuido(rnd, fecha, id));
+                        deudaRuido--;
+                    }
+                }
+            }
+        }
+    }
+
+    private static String lineaRuido(SplittableRandom rnd, String fecha, int id) {
+        switch (rnd.nextInt(4)) {
+            case 0:  return fecha + " INFO sim - {\"logger\":\"STDOUT\",\"message\":\"tick {" + id + "}\"}\n";
+            case 1:  return fecha + " DEBUG sim - recalculando control de rooms\n";
+            case 2:  return fecha + " INFO sim - {\"roomId\":" + id + ",\"T_C\":\n";
+            default: return fecha + " INFO sim - {\"event\":\"heartbeat\",\"seq\":" + rnd.nextInt(1_000_000) + "}\n";
+        }
+    }
+
+    private static final long[] ESCALA = {1, 10, 100, 1000, 10_000, 100_000, 1_000_000};
+
+    /** Decimal fijo sin notación científica, como lo escribe el simulador: 0.000417, 21.5. */
+    private static StringBuilder decimal(StringBuilder sb, double v, int decimales) {
+        long escalado = Math.round(v * ESCALA[decimales]);
+        if (escalado < 0) {
+            sb.append('-');
+            escalado = -escalado;
+        }
+        sb.append(escalado / ESCALA[decimales]).append('.');
+        long frac = escalado % ESCALA[decimales];
+        if (frac == 0) return sb.append('0');
+        int digitos = decimales;
+        while (frac % 10 == 0) {
+            frac /= 10;
+            digitos--;
+        }
+        for (long s = ESCALA[digitos - 1]; s > frac; s /= 10) sb.append('0');
+        return sb.append(frac);
+    }
+
+    // ===============================================================
+    // simulator-access.json.log
+    // ===============================================================
+
+    /** Una línea HTTP cada 10 registros; el 20% de los POST se repiten (deben deduplicarse). */
+    private static void escribirHttp(Path path, Parametros p) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(p.semilla * 31 + 7);
+        long lineas = Math.max(1, p.rooms * p.ticks / 10);
+        long paso = Math.max(1, p.ticks * TICK_MS / lineas);
+
+        try (Writer w = writer(path)) {
+            for (long k = 0; k < lineas; k++) {
+                long epoch = EPOCH_INICIO + k * paso + rnd.nextInt((int) Math.min(paso, 1000));
+                int id = 1 + rnd.nextInt(p.rooms);
+                int tipo = rnd.nextInt(10);
+                String method = tipo == 0 ? "GET" : "POST";
+                String ruta = tipo == 1 ? "/status" : "/switch/" + id;
+                int status = tipo == 2 ? 500 : 200;
+
+                String line = "{\"@timestamp\":\"" + FECHA_HTTP.format(Instant.ofEpochMilli(epoch))
+                        + "\",\"method\":\"" + method + "\",\"path\":\"" + ruta
+                        + "\",\"status\":" + status + "}\n";
+                w.write(line);
+                if (rnd.nextInt(5) == 0) w.write(line);
+            }
+        }
+    }
+
+    private static Writer writer(Path path) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 1 << 16);
+    }
+}
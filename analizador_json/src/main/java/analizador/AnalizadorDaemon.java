@@ -0,0 +1,302 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Proceso que queda corriendo: sigue los logs de una corrida como --follow y
+ * sirve el resumen, los rooms y el pico como JSON por HTTP local, para
+ * tableros que consultan seguido sin pagar el arranque de la JVM.
+ *
+ * Las respuestas se arman una sola vez por cada tanda de registros nuevos, en
+ * el hilo que ingiere, y se publican juntas como una {@link Instantanea}
+ * inmutable; los pedidos sólo leen esa referencia, así que cualquier cantidad
+ * de lectores concurrentes sirve bytes ya hechos sin bloquear la ingesta.
+ * Cada instantánea tiene un ETag: con If-None-Match igual se responde 304.
+ *
+ * <pre>
+ *   GET /resumen        totales, rango simulado y métricas globales
+ *   GET /rooms          todos los rooms con muestras
+ *   GET /rooms/{id}     un room
+ *   GET /pico           pico de consumo y curva de duración de carga
+ *   GET /ingesta        contadores de ingesta en vivo (sin caché)
+ * </pre>
+ */
+public class AnalizadorDaemon {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int HTTP_THREADS = 8;
+
+    private final MetricPipeline pipeline;
+    /** Parte del ETag: que un reinicio no haga pasar por vigente la respuesta de otro proceso. */
+    private final long arranque = System.currentTimeMillis();
+    private volatile Instantanea actual;
+    private long generacion;
+
+    AnalizadorDaemon(MetricPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Uso correcto:");
+            System.err.println("java analizador.AnalizadorDaemon <sim-log> <config-json> <http-log> [opciones]");
+            System.err.println(String.join(System.lineSeparator(),
+                    "  --port=N             puerto HTTP (por defecto, 8077)",
+                    "  --bind=ADDR          dirección en la que escucha (por defecto, 127.0.0.1)"));
+            System.err.println(Opciones.AYUDA);
+            return;
+        }
+
+        Path logPath = Paths.get(args[0]);
+        Path configPath = Paths.get(args[1]);
+        Path httpPath = Paths.get(args[2]);
+        int port = 8077;
+        String bind = "127.0.0.1";
+        Opciones opciones;
+        try {
+            List<String> rest = new ArrayList<>();
+            for (int i = 3; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(arg.substring("--port=".length()));
+                } else if (arg.startsWith("--bind=")) {
+                    bind = arg.substring("--bind=".length());
+                } else {
+                    rest.add(arg);
+                }
+            }
+            opciones = Opciones.parse(rest.toArray(new String[0]), 0);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        opciones.follow = true;
+
+        MetricPipeline pipeline = new MetricPipeline(logPath, configPath, httpPath, opciones,
+                EnumSet.allOf(Metrica.class), Estilo.EMOJI);
+        try {
+            if (!Files.exists(logPath) || !Files.exists(configPath)) {
+                System.err.println("❌ Faltan el log del simulador o la configuración");
+                return;
+            }
+            if (LogInput.secuencial(logPath, opciones.rotados)) {
+                System.err.println("❌ El daemon sigue el log mientras crece: no admite logs comprimidos ni --rotados");
+                return;
+            }
+            pipeline.cargarConfig();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        pipeline.stats.registrar(null);
+
+        AnalizadorDaemon daemon = new AnalizadorDaemon(pipeline);
+        HttpServer server;
+        ExecutorService executor = AnalizadorLote.executor(HTTP_THREADS);
+        try {
+            server = daemon.start(new InetSocketAddress(bind, port), executor);
+        } catch (IOException e) {
+            System.err.println("❌ No se pudo escuchar en " + bind + ":" + port + ": " + e.getMessage());
+            executor.shutdownNow();
+            return;
+        }
+        System.out.printf("✅ Escuchando en http://%s:%d/resumen%n", bind, server.getAddress().getPort());
+
+        Thread ingesta = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            executor.shutdownNow();
+            ingesta.interrupt();
+        }));
+
+        try {
+            new FollowSession(logPath, configPath, httpPath, pipeline.sim, pipeline.http, opciones,
+                    Metrica.mask(pipeline.metricas)).run(daemon::publicar);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+            pipeline.stats.desregistrar();
+        }
+    }
+
+    HttpServer start(InetSocketAddress address, ExecutorService executor) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/", this::atender);
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    // ===============================================================
+    // Instantáneas
+    // ===============================================================
+
+    /** Respuestas ya serializadas de un mismo estado de la ingesta. */
+    static final class Instantanea {
+        final String etag;
+        final byte[] resumen;
+        final byte[] rooms;
+        final byte[] pico;
+        final Map<Integer, byte[]> porRoom;
+
+        Instantanea(String etag, byte[] resumen, byte[] rooms, byte[] pico, Map<Integer, byte[]> porRoom) {
+            this.etag = etag;
+            this.resumen = resumen;
+            this.rooms = rooms;
+            this.pico = pico;
+            this.porRoom = porRoom;
+        }
+    }
+
+    /**
+     * Arma y publica la instantánea del estado actual. Lo llama FollowSession
+     * desde el hilo de ingesta, sólo cuando llegaron registros nuevos.
+     */
+    void publicar() {
+        try {
+            actual = armar(++generacion);
+        } catch (IOException e) {
+            System.err.println("No se pudo armar la respuesta JSON: " + e);
+        }
+    }
+
+    private Instantanea armar(long gen) throws IOException {
+        SimAggregator sim = pipeline.sim;
+        SimulationConfig config = pipeline.config;
+        Set<Metrica> metricas = pipeline.metricas;
+        PeakLoadEngine.Result peak = metricas.contains(Metrica.PICO) ? sim.peakLoad() : null;
+
+        ObjectNode resumen = MAPPER.createObjectNode();
+        resumen.put("generacion", gen);
+        ReportWriter.resumen(sim, config, metricas, peak, resumen);
+
+        ArrayNode rooms = MAPPER.createArrayNode();
+        Map<Integer, byte[]> porRoom = new HashMap<>();
+        Map<Integer, RoomStats> porId = new TreeMap<>();
+        for (int s = 0; s < sim.rooms.size(); s++) porId.put(sim.rooms.id(s), sim.rooms.at(s));
+        for (Map.Entry<Integer, RoomStats> e : porId.entrySet()) {
+            RoomStats st = e.getValue();
+            if (st.samples == 0) continue;
+            ObjectNode room = rooms.addObject();
+            ReportWriter.room(e.getKey(), st, metricas, room);
+            porRoom.put(e.getKey(), MAPPER.writeValueAsBytes(room));
+        }
+
+        byte[] pico = MAPPER.writeValueAsBytes(resumen.has("pico") ? resumen.get("pico") : MAPPER.nullNode());
+        return new Instantanea("\"" + arranque + "-" + gen + "\"", MAPPER.writeValueAsBytes(resumen),
+                MAPPER.writeValueAsBytes(rooms), pico, porRoom);
+    }
+
+    // ===============================================================
+    // HTTP
+    // ===============================================================
+
+    private void atender(HttpExchange ex) throws IOException {
+        try {
+            if (!"GET".equals(ex.getRequestMethod()) && !"HEAD".equals(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Allow", "GET, HEAD");
+                error(ex, 405, "Método no permitido");
+                return;
+            }
+            String path = ex.getRequestURI().getPath();
+            if (path.equals("/ingesta")) {
+                responder(ex, null, ingesta());
+                return;
+            }
+
+            Instantanea snap = actual;
+            if (snap == null) {
+                ex.getResponseHeaders().set("Retry-After", "1");
+                error(ex, 503, "Todavía se está leyendo el log");
+                return;
+            }
+            byte[] body;
+            if (path.equals("/resumen") || path.equals("/")) {
+                body = snap.resumen;
+            } else if (path.equals("/rooms")) {
+                body = snap.rooms;
+            } else if (path.equals("/pico")) {
+                body = snap.pico;
+            } else if (path.startsWith("/rooms/")) {
+                body = null;
+                try {
+                    body = snap.porRoom.get(Integer.parseInt(path.substring("/rooms/".length())));
+                } catch (NumberFormatException ignore) { }
+                if (body == null) {
+                    error(ex, 404, "Room sin muestras o inexistente");
+                    return;
+                }
+            } else {
+                error(ex, 404, "No existe " + path);
+                return;
+            }
+            responder(ex, snap.etag, body);
+        } finally {
+            ex.close();
+        }
+    }
+
+    private byte[] ingesta() throws IOException {
+        ObjectNode out = MAPPER.createObjectNode();
+        for (IngestStats.Etapa etapa : new IngestStats.Etapa[] {pipeline.stats.simulador, pipeline.stats.accessLog}) {
+            ObjectNode e = out.putObject(etapa.nombre);
+            e.put("segundos", etapa.getSegundos());
+            e.put("lineas", etapa.getLineas());
+            e.put("lineasPorSegundo", etapa.getLineasPorSegundo());
+            e.put("mbPorSegundo", etapa.getMBPorSegundo());
+            e.put("registros", etapa.getRegistros());
+            e.put("filtradas", etapa.getFiltradas());
+            e.put("salteadas", etapa.getSalteadas());
+            e.put("fallidas", etapa.getFallidas());
+            e.put("bytesAsignadosPorRegistro", etapa.getBytesAsignadosPorRegistro());
+        }
+        return MAPPER.writeValueAsBytes(out);
+    }
+
+    /** 200 con {@code body}, o 304 si el cliente ya tiene esa versión ({@code etag} null: sin caché). */
+    private static void responder(HttpExchange ex, String etag, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (etag != null) {
+            ex.getResponseHeaders().set("ETag", etag);
+            ex.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+        } else {
+            ex.getResponseHeaders().set("Cache-Control", "no-store");
+        }
+        if ("HEAD".equals(ex.getRequestMethod())) {
+            ex.sendResponseHeaders(200, -1);
+            return;
+        }
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void error(HttpExchange ex, int status, String mensaje) throws IOException {
+        ObjectNode err = MAPPER.createObjectNode();
+        err.put("error", mensaje);
+        byte[] body = MAPPER.writeValueAsBytes(err);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package analizador;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Analiza muchas corridas de simulación en una sola JVM.
+ *
+ * Recibe un directorio cuyas subcarpetas son corridas (con simulation_config.json,
+ * simulator.json.log y opcionalmente simulator-access.json.log), o un manifiesto
+ * de texto con una corrida por línea: la carpeta, o los tres paths separados por
+ * tabs. Las corridas se analizan en paralelo (con hilos virtuales si la JVM los
+ * tiene), a lo sumo {@code --jobs} a la vez y sin pasarse de {@code --mem} MB
+ * estimados en total. Cada corrida deja su reporte en {@code --out}; al final se
+ * imprime una tabla comparativa por corrida y room.
+ */
+public class AnalizadorLote {
+
+    static final String CONFIG = "simulation_config.json";
+    static final String SIM_LOG = "simulator.json.log";
+    static final String HTTP_LOG = "simulator-access.json.log";
+
+    /** Reporte por corrida si no viene --metricas; la tabla comparativa siempre necesita el pico. */
+    private static final Set<Metrica> METRICAS = Metrica.PARAMETRIZADO;
+    private static final long MB = 1L << 20;
+    /** Memoria fija por corrida: buffers de lectura, config, mapas de rooms. */
+    private static final long BASE_MB = 16;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso correcto:");
+            System.err.println("java analizador.AnalizadorLote <dir-corridas | manifiesto.txt> [opciones]");
+            System.err.println(String.join(System.lineSeparator(),
+                    "  --jobs=N             corridas en paralelo (por defecto, los núcleos)",
+                    "  --mem=MB             memoria estimada máxima entre todas las corridas en curso",
+                    "                       (por defecto, 3/4 del heap)",
+                    "  --out=DIR            carpeta de los reportes por corrida (por defecto, <entrada>/reportes)",
+                    "  (con --rollup, los buckets de cada corrida van a --out como <corrida>.buckets.csv si",
+                    "   PATH termina en .csv, o a la carpeta <corrida>.buckets)"));
+            System.err.println(Opciones.AYUDA);
+            return;
+        }
+
+        Path input = Paths.get(args[0]);
+        int jobs = Runtime.getRuntime().availableProcessors();
+        long memMb = Runtime.getRuntime().maxMemory() / MB * 3 / 4;
+        Path outDir = null;
+        Opciones opciones;
+        try {
+            List<String> rest = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("--jobs=")) {
+                    jobs = Math.max(1, Integer.parseInt(value(arg)));
+                } else if (arg.startsWith("--mem=")) {
+                    memMb = Math.max(BASE_MB, Long.parseLong(value(arg)));
+                } else if (arg.startsWith("--out=")) {
+                    outDir = Paths.get(value(arg));
+                } else {
+                    rest.add(arg);
+                }
+            }
+            opciones = Opciones.parse(rest.toArray(new String[0]), 0);
+            if (opciones.follow) throw new IllegalArgumentException("--follow no se puede usar en modo lote");
+            if (opciones.metricas != null) opciones.metricas.add(Metrica.PICO);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        List<Corrida> corridas;
+        try {
+            corridas = descubrir(input);
+        } catch (IOException e) {
+            System.err.println("No se pudo leer " + input.toAbsolutePath() + ": " + e);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (corridas.isEmpty()) {
+            System.err.println("No se encontraron corridas en " + input.toAbsolutePath());
+            return;
+        }
+        if (outDir == null) {
+            outDir = (Files.isDirectory(input) ? input : input.toAbsolutePath().getParent()).resolve("reportes");
+        }
+
+        try {
+            Files.createDirectories(outDir);
+            long t0 = System.nanoTime();
+            List<Resumen> resumenes = analizar(corridas, opciones, outDir, jobs, memMb);
+            System.out.printf("%d corridas analizadas en %.1f s. Reportes en %s%n",
+                    corridas.size(), (System.nanoTime() - t0) / 1e9, outDir.toAbsolutePath());
+
+            ByteArrayOutputStream tabla = new ByteArrayOutputStream();
+            try (PrintStream out = new PrintStream(tabla, true, StandardCharsets.UTF_8)) {
+                imprimirComparacion(resumenes, out);
+            }
+            Files.write(outDir.resolve("comparacion.txt"), tabla.toByteArray());
+            System.out.print(tabla.toString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===============================================================
+    // Descubrimiento de corridas
+    // ===============================================================
+
+    /** Una corrida: sus tres archivos y el nombre con que aparece en la tabla. */
+    static final class Corrida {
+        final String nombre;
+        final Path simLog;
+        final Path config;
+        final Path httpLog;
+
+        Corrida(String nombre, Path simLog, Path config, Path httpLog) {
+            this.nombre = nombre;
+            this.simLog = simLog;
+            this.config = config;
+            this.httpLog = httpLog;
+        }
+    }
+
+    /**
+     * Corridas de la entrada, cada una con un nombre distinto: de él salen los
+     * archivos de {@code --out} y las filas de la tabla.
+     *
+     * El nombre es el path de la carpeta relativo a la entrada (o al manifiesto),
+     * con los separadores cambiados por "_"; en las líneas de tres paths, el
+     * nombre del sim-log sin extensión. Si dos corridas distintas quedan con el
+     * mismo nombre, las siguientes llevan "-2", "-3"... Una misma corrida listada
+     * dos veces es un error del manifiesto y se rechaza antes de empezar.
+     */
+    static List<Corrida> descubrir(Path input) throws IOException {
+        List<Corrida> corridas = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            Path base = input.toAbsolutePath().normalize();
+            if (Files.exists(input.resolve(CONFIG))) {
+                corridas.add(enCarpeta(nombre(base), input));
+            } else {
+                try (Stream<Path> hijos = Files.list(input)) {
+                    hijos.filter(p -> Files.isDirectory(p) && Files.exists(p.resolve(CONFIG)))
+                            .sorted()
+                            .forEach(p -> corridas.add(enCarpeta(nombre(base, p.toAbsolutePath().normalize()), p)));
+                }
+            }
+            return nombresUnicos(corridas);
+        }
+
+        Path base = input.toAbsolutePath().normalize().getParent();
+        for (String line : Files.readAllLines(input, StandardCharsets.UTF_8)) {
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+            String[] partes = t.split("\t");
+            if (partes.length >= 3) {
+                Path sim = base.resolve(partes[0].trim()).normalize();
+                corridas.add(new Corrida(stem(sim), sim,
+                        base.resolve(partes[1].trim()), base.resolve(partes[2].trim())));
+            } else {
+                Path dir = base.resolve(t).normalize();
+                corridas.add(enCarpeta(nombre(base, dir), dir));
+            }
+        }
+        return nombresUnicos(corridas);
+    }
+
+    private static Corrida enCarpeta(String nombre, Path dir) {
+        return new Corrida(nombre, log(dir, SIM_LOG), dir.resolve(CONFIG), log(dir, HTTP_LOG));
+    }
+
+    /** "lote1/run3" relativo a {@code base} → "lote1_run3"; los ".." no suman al nombre. */
+    private static String nombre(Path base, Path dir) {
+        StringJoiner out = new StringJoiner("_");
+        for (Path parte : base.relativize(dir)) {
+            String s = parte.toString();
+            if (!s.isEmpty() && !s.equals("..") && !s.equals(".")) out.add(s);
+        }
+        return out.length() > 0 ? out.toString() : nombre(dir);
+    }
+
+    /** El log tal cual o, si sólo está archivado, su .gz o .zst. */
+    private static Path log(Path dir, String name) {
+        for (String ext : new String[] {"", ".gz", ".zst"}) {
+            Path p = dir.resolve(name + ext);
+            if (Files.exists(p)) return p;
+        }
+        return dir.resolve(name);
+    }
+
+    private static String nombre(Path dir) {
+        Path name = dir == null ? null : dir.getFileName();
+        return name == null ? String.valueOf(dir) : name.toString();
+    }
+
+    /** Nombre del archivo hasta el primer punto: "run3.json.log" → "run3". */
+    private static String stem(Path file) {
+        String name = nombre(file);
+        int dot = name.indexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Sufijos "-2", "-3"... para los nombres repetidos, sin distinguir mayúsculas
+     * (por los sistemas de archivos que no lo hacen). "comparacion" queda
+     * reservado para la tabla.
+     */
+    private static List<Corrida> nombresUnicos(List<Corrida> corridas) {
+        Set<Path> logs = new HashSet<>();
+        Set<String> usados = new HashSet<>();
+        usados.add("comparacion");
+        List<Corrida> out = new ArrayList<>(corridas.size());
+        for (Corrida c : corridas) {
+            if (!logs.add(c.simLog.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("La corrida de " + c.simLog + " aparece más de una vez");
+            }
+            String nombre = c.nombre;
+            for (int n = 2; !usados.add(nombre.toLowerCase(Locale.ROOT)); n++) {
+                nombre = c.nombre + "-" + n;
+            }
+            out.add(nombre.equals(c.nombre) ? c : new Corrida(nombre, c.simLog, c.config, c.httpLog));
+        }
+        return out;
+    }
+
+    // ===============================================================
+    // Ejecución
+    // ===============================================================
+
+    /** Lo que queda de cada corrida para la tabla; el agregador se libera al terminar. */
+    static final class Resumen {
+        final String nombre;
+        String error;
+        double peakKWh;
+        double maxEnergyKWh;
+        final Map<Integer, double[]> rooms = new TreeMap<>(); // {% dentro del rango, % heater}
+
+        Resumen(String nombre) {
+            this.nombre = nombre;
+        }
+    }
+
+    static List<Resumen> analizar(List<Corrida> corridas, Opciones opciones, Path outDir, int jobs, long memMb)
+            throws InterruptedException {
+        Semaphore slots = new Semaphore(jobs);
+        Semaphore memoria = new Semaphore((int) Math.min(Integer.MAX_VALUE, memMb));
+        ExecutorService pool = executor(jobs);
+        try {
+            List<Future<Resumen>> futuros = new ArrayList<>();
+            for (Corrida c : corridas) {
+                int permisos = (int) Math.min(memMb, estimarMb(c));
+                futuros.add(pool.submit(() -> {
+                    slots.acquire();
+                    try {
+                        memoria.acquire(permisos);
+                        try {
+                            return analizar(c, opciones, outDir);
+                        } finally {
+                            memoria.release(permisos);
+                        }
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+
+            List<Resumen> out = new ArrayList<>();
+            for (int i = 0; i < futuros.size(); i++) {
+                try {
+                    out.add(futuros.get(i).get());
+                } catch (ExecutionException e) {
+                    Resumen r = new Resumen(corridas.get(i).nombre);
+                    r.error = String.valueOf(e.getCause());
+                    out.add(r);
+                }
+            }
+            return out;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Memoria aproximada de una corrida: la base más lo que crece con los logs
+     * (transiciones del heater para el pico y claves de deduplicación HTTP).
+     */
+    static long estimarMb(Corrida c) {
+        long simBytes = tamanio(c.simLog);
+        long httpBytes = tamanio(c.httpLog);
+        return BASE_MB + (simBytes / 16 + httpBytes / 4) / MB;
+    }
+
+    private static long tamanio(Path p) {
+        try {
+            return Files.exists(p) ? Files.size(p) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** Hilos virtuales en Java 21+; en versiones anteriores, un pool fijo de {@code jobs} hilos. */
+    static ExecutorService executor(int jobs) {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(jobs);
+        }
+    }
+
+    private static Resumen analizar(Corrida c, Opciones opciones, Path outDir) throws IOException {
+        Resumen r = new Resumen(c.nombre);
+        if (!Files.exists(c.simLog) || !Files.exists(c.config)) {
+            r.error = "faltan " + (Files.exists(c.simLog) ? CONFIG : SIM_LOG);
+            return r;
+        }
+
+        MetricPipeline pipeline = new MetricPipeline(c.simLog, c.config, c.httpLog, opciones, METRICAS, Estilo.EMOJI);
+        pipeline.stats.registrar(c.nombre);
+        try {
+            pipeline.cargarConfig();
+            if (pipeline.sim.alertas != null) pipeline.sim.alertas.corrida = c.nombre;
+            pipeline.ingerir();
+        } finally {
+            pipeline.stats.desregistrar();
+        }
+        SimulationConfig config = pipeline.config;
+        SimAggregator sim = pipeline.sim;
+
+        if (opciones.formato == ReportWriter.Formato.TEXTO) {
+            try (PrintStream out = new PrintStream(new BufferedOutputStream(
+                    Files.newOutputStream(outDir.resolve(c.nombre + ".txt"))), false, StandardCharsets.UTF_8)) {
+                out.printf("Corrida %s%n  log: %s%n  config: %s%n  http: %s%n",
+                        c.nombre, c.simLog, c.config,
+                        !pipeline.usaHttp() ? "(no se usa)" : Files.exists(c.httpLog) ? c.httpLog : "(no encontrado)");
+                pipeline.imprimirReporte(out);
+            }
+        } else {
+            String ext = opciones.formato == ReportWriter.Formato.JSON ? ".json" : ".csv";
+            try (OutputStream out = Files.newOutputStream(outDir.resolve(c.nombre + ext))) {
+                ReportWriter.escribir(sim, config, pipeline.metricas, Estilo.EMOJI, opciones.formato, out);
+            }
+        }
+        if (opciones.rollup != null) {
+            boolean csv = opciones.rollup.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+            RollupExport.write(sim, outDir.resolve(c.nombre + (csv ? ".buckets.csv" : ".buckets")));
+        }
+
+        r.peakKWh = sim.peakLoad().peakKWh;
+        r.maxEnergyKWh = config.maxEnergyKWh;
+        for (int s = 0; s < sim.rooms.size(); s++) {
+            RoomStats st = sim.rooms.at(s);
+            if (st.samples == 0) continue;
+            r.rooms.put(sim.rooms.id(s), new double[] {
+                    st.withinRange * 100.0 / st.samples,
+                    st.heaterOnCount * 100.0 / st.samples});
+        }
+        return r;
+    }
+
+    // ===============================================================
+    // Tabla comparativa
+    // ===============================================================
+    static void imprimirComparacion(List<Resumen> resumenes, PrintStream out) {
+        int ancho = "Corrida".length();
+        for (Resumen r : resumenes) ancho = Math.max(ancho, r.nombre.length());
+        String fila = "%-" + ancho + "s  %10s  %10s  %6s  %9s  %9s%n";
+
+        out.printf("%nComparación entre corridas:%n");
+        out.printf(fila, "Corrida", "Pico kWh", "% máximo", "Room", "% rango", "% heater");
+        for (Resumen r : resumenes) {
+            if (r.error != null) {
+                out.printf("%-" + ancho + "s  ERROR: %s%n", r.nombre, r.error);
+                continue;
+            }
+            String pico = String.format("%.2f", r.peakKWh);
+            String pctMax = r.maxEnergyKWh > 0 ? String.format("%.1f", r.peakKWh / r.maxEnergyKWh * 100.0) : "-";
+            if (r.rooms.isEmpty()) {
+                out.printf(fila, r.nombre, pico, pctMax, "-", "-", "-");
+                continue;
+            }
+            boolean primera = true;
+            for (Map.Entry<Integer, double[]> e : r.rooms.entrySet()) {
+                out.printf(fila, primera ? r.nombre : "", primera ? pico : "", primera ? pctMax : "",
+                        e.getKey(), String.format("%.1f", e.getValue()[0]), String.format("%.1f", e.getValue()[1]));
+                primera = false;
+            }
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
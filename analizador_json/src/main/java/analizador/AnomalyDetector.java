@@ -0,0 +1,324 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reglas de alerta evaluadas durante la ingesta, registro a registro, con
+ * estado incremental: cada regla emite un evento JSON (una línea) apenas se
+ * cumple, sin esperar al reporte, y otro cuando deja de cumplirse. Con
+ * --follow las alertas salen mientras el log crece.
+ *
+ * Las reglas se declaran en simulation_config.json:
+ * <pre>
+ *   "alertas": [
+ *     {"regla": "fuera-de-rango", "duracion": "15m"},
+ *     {"regla": "carga-alta", "umbral": "40 kWh", "duracion": "1m"},
+ *     {"regla": "heater-sin-efecto", "duracion": "10m", "caida": "0.3"}
+ *   ]
+ * </pre>
+ * <ul>
+ *   <li>fuera-de-rango: un room fuera de expectedTemp ± {@link RoomStats#RANGE},
+ *       siempre del mismo lado, durante {@code duracion}.</li>
+ *   <li>carga-alta: la carga simultánea del sitio (potencia de los rooms con el
+ *       heater encendido) por encima de {@code umbral} (por defecto,
+ *       simulacion.maxEnergy) durante {@code duracion}.</li>
+ *   <li>heater-sin-efecto: heater encendido durante {@code duracion} sin que la
+ *       temperatura suba, y al menos {@code caida} °C más baja que al empezar.</li>
+ * </ul>
+ * Cada registro cuesta una búsqueda del room y unas pocas comparaciones, sin
+ * importar el largo del log. El tiempo es simTimeMs, así que los registros sin
+ * simTimeMs no se evalúan; el log tiene que llegar en orden (lectura serial,
+ * --pipeline, varios logs mezclados o --follow).
+ */
+final class AnomalyDetector {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long SIN_RACHA = Long.MIN_VALUE;
+
+    /** Archivos de --alertas abiertos, uno por path para todo el proceso. */
+    private static final Map<Path, PrintStream> SALIDAS = new HashMap<>();
+
+    static final String FUERA_DE_RANGO = "fuera-de-rango";
+    static final String CARGA_ALTA = "carga-alta";
+    static final String HEATER_SIN_EFECTO = "heater-sin-efecto";
+
+    /** Adónde van los eventos: System.err, o el archivo de --alertas ({@link #salida}). */
+    PrintStream out = System.err;
+    private final RoomIndex<Room> rooms;
+    /** Corrida a la que pertenecen los eventos (AnalizadorLote); null si hay una sola. */
+    String corrida;
+    long emitidas;
+    /** Eventos que no se pudieron serializar o escribir; el primero se avisa por stderr. */
+    long perdidas;
+
+    // Parámetros; duración < 0: regla no declarada
+    private long rangoMs = -1;
+    private long cargaMs = -1;
+    private double umbralKWh;
+    private long heaterMs = -1;
+    private double caida = 0.3;
+
+    // Carga del sitio
+    private double cargaKWh;
+    private long cargaDesde = SIN_RACHA;
+    private boolean cargaAvisada;
+    private double cargaMax;
+    /** simTimeMs de los registros en curso: la carga se evalúa al cerrar cada instante. */
+    private long instante = SIN_RACHA;
+
+    private AnomalyDetector(SimulationConfig config) {
+        this.umbralKWh = config.maxEnergyKWh;
+        this.rooms = new RoomIndex<>(config.rooms.stream().mapToInt(r -> r.id).toArray());
+        for (SimulationConfig.Room room : config.rooms) {
+            rooms.add(room.id, new Room(room.expectedTemp, room.energyKWh, true));
+        }
+    }
+
+    /** Detector con las reglas de {@code config}, o null si no declara ninguna. */
+    static AnomalyDetector fromConfig(SimulationConfig config) throws IOException {
+        JsonNode reglas = config.root.path("alertas");
+        if (reglas.isMissingNode() || reglas.isNull()) return null;
+        if (!reglas.isArray()) throw new IOException("\"alertas\" tiene que ser una lista de reglas");
+        if (reglas.size() == 0) return null;
+
+        AnomalyDetector d = new AnomalyDetector(config);
+        for (JsonNode regla : reglas) {
+            String nombre = regla.path("regla").asText("");
+            try {
+                long duracion = Opciones.parseDurationMs(regla.path("duracion").asText("0"));
+                if (duracion < 0) throw new IllegalArgumentException("duración negativa");
+                switch (nombre) {
+                    case FUERA_DE_RANGO:
+                        if (d.rangoMs >= 0) throw new IllegalArgumentException("regla repetida");
+                        d.rangoMs = duracion;
+                        break;
+                    case CARGA_ALTA:
+                        if (d.cargaMs >= 0) throw new IllegalArgumentException("regla repetida");
+                        d.cargaMs = duracion;
+                        if (regla.has("umbral")) d.umbralKWh = SimulationConfig.parseEnergy(regla.get("umbral").asText());
+                        if (d.umbralKWh <= 0) throw new IllegalArgumentException("sin umbral ni simulacion.maxEnergy");
+                        break;
+                    case HEATER_SIN_EFECTO:
+                        if (d.heaterMs >= 0) throw new IllegalArgumentException("regla repetida");
+                        d.heaterMs = duracion;
+                        if (regla.has("caida")) d.caida = SimulationConfig.parseDouble(regla.get("caida").asText());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("regla desconocida");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Regla de alerta inválida " + regla + ": " + e.getMessage());
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Stream compartido para agregar eventos a {@code path}. Las corridas de
+     * AnalizadorLote escriben al mismo archivo: con un solo stream y un solo
+     * lock no se abre un descriptor por corrida ni se mezclan líneas. Queda
+     * abierto hasta que termina el proceso; cada evento se vacía al escribirlo.
+     */
+    static synchronized PrintStream salida(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        PrintStream out = SALIDAS.get(key);
+        if (out == null) {
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(key.toFile(), true)),
+                    false, StandardCharsets.UTF_8);
+            SALIDAS.put(key, out);
+        }
+        return out;
+    }
+
+    // ===============================================================
+    // Evaluación
+    // ===============================================================
+
+    void accept(SimRecord rec) {
+        if (!rec.hasSimTime) return;
+        long now = rec.simTimeMs;
+        Room r = rooms.get(rec.roomId);
+        if (r == null) {
+            // Sin configuración no hay expectedTemp ni potencia: sólo heater-sin-efecto
+            r = new Room(Double.NaN, 0, false);
+            rooms.add(rec.roomId, r);
+        }
+
+        if (rangoMs >= 0 && r.configurado) fueraDeRango(rec, r, now);
+        if (heaterMs >= 0) heaterSinEfecto(rec, r, now);
+        // Los rooms de un mismo instante se encienden y apagan de a uno: evaluar a
+        // mitad de camino vería cargas que no existieron (como el barrido del pico)
+        if (cargaMs >= 0 && now != instante) {
+            if (instante != SIN_RACHA) cargaAlta(instante);
+            instante = now;
+        }
+        if (rec.heaterOn != r.heaterOn) {
+            cargaKWh += rec.heaterOn ? r.energyKWh : -r.energyKWh;
+            r.heaterOn = rec.heaterOn;
+        }
+    }
+
+    /**
+     * Evalúa la carga del último instante, que de otro modo queda pendiente
+     * hasta el primer registro del siguiente: al final de la ingesta y después
+     * de cada poll de --follow. Si el instante sigue en el próximo poll, se
+     * vuelve a evaluar con los registros que falten.
+     */
+    void cerrar() {
+        if (cargaMs >= 0 && instante != SIN_RACHA) cargaAlta(instante);
+    }
+
+    private void fueraDeRango(SimRecord rec, Room r, long now) {
+        double temp = rec.tempC;
+        int lado = temp < r.expectedTemp - RoomStats.RANGE ? -1 : temp > r.expectedTemp + RoomStats.RANGE ? 1 : 0;
+        if (lado != r.lado && r.fueraDesde != SIN_RACHA) {
+            if (r.fueraAvisada) {
+                ObjectNode e = evento(FUERA_DE_RANGO, "resuelta", now, r.fueraDesde, rec.roomId);
+                e.put("temp", temp);
+                emitir(e);
+            }
+            r.fueraDesde = SIN_RACHA;
+            r.fueraAvisada = false;
+        }
+        r.lado = lado;
+        if (lado == 0) return;
+        if (r.fueraDesde == SIN_RACHA) r.fueraDesde = now;
+        if (!r.fueraAvisada && now - r.fueraDesde >= rangoMs) {
+            r.fueraAvisada = true;
+            ObjectNode e = evento(FUERA_DE_RANGO, "activa", now, r.fueraDesde, rec.roomId);
+            e.put("sentido", lado < 0 ? "bajo" : "alto");
+            e.put("temp", temp);
+            e.put("expectedTemp", r.expectedTemp);
+            emitir(e);
+        }
+    }
+
+    private void heaterSinEfecto(SimRecord rec, Room r, long now) {
+        double temp = rec.tempC;
+        if (!rec.heaterOn || (r.enfriandoDesde != SIN_RACHA && temp > r.tempInicio)) {
+            if (r.enfriandoAvisada) {
+                ObjectNode e = evento(HEATER_SIN_EFECTO, "resuelta", now, r.enfriandoDesde, rec.roomId);
+                e.put("temp", temp);
+                e.put("heaterOn", rec.heaterOn);
+                emitir(e);
+            }
+            r.enfriandoDesde = SIN_RACHA;
+            r.enfriandoAvisada = false;
+            if (!rec.heaterOn) return;
+        }
+        // Heater encendido y la temperatura no pasó la del comienzo de la racha
+        if (r.enfriandoDesde == SIN_RACHA) {
+            r.enfriandoDesde = now;
+            r.tempInicio = temp;
+        }
+        if (!r.enfriandoAvisada && now - r.enfriandoDesde >= heaterMs && r.tempInicio - temp >= caida) {
+            r.enfriandoAvisada = true;
+            ObjectNode e = evento(HEATER_SIN_EFECTO, "activa", now, r.enfriandoDesde, rec.roomId);
+            e.put("tempInicio", r.tempInicio);
+            e.put("temp", temp);
+            emitir(e);
+        }
+    }
+
+    private void cargaAlta(long now) {
+        if (cargaKWh <= umbralKWh) {
+            if (cargaAvisada) {
+                ObjectNode e = evento(CARGA_ALTA, "resuelta", now, cargaDesde, null);
+                e.put("cargaMaxKWh", cargaMax);
+                e.put("umbralKWh", umbralKWh);
+                emitir(e);
+            }
+            cargaDesde = SIN_RACHA;
+            cargaAvisada = false;
+            return;
+        }
+        if (cargaDesde == SIN_RACHA) {
+            cargaDesde = now;
+            cargaMax = cargaKWh;
+        }
+        cargaMax = Math.max(cargaMax, cargaKWh);
+        if (!cargaAvisada && now - cargaDesde >= cargaMs) {
+            cargaAvisada = true;
+            ObjectNode e = evento(CARGA_ALTA, "activa", now, cargaDesde, null);
+            e.put("cargaKWh", cargaKWh);
+            e.put("umbralKWh", umbralKWh);
+            emitir(e);
+        }
+    }
+
+    // ===============================================================
+    // Eventos
+    // ===============================================================
+
+    private ObjectNode evento(String regla, String estado, long now, long desde, Integer roomId) {
+        ObjectNode e = MAPPER.createObjectNode();
+        if (corrida != null) e.put("corrida", corrida);
+        e.put("regla", regla);
+        e.put("estado", estado);
+        e.put("simTimeMs", now);
+        e.put("desdeMs", desde);
+        e.put("duracionMs", now - desde);
+        if (roomId != null) e.put("roomId", roomId);
+        return e;
+    }
+
+    /** Una línea por evento, vaciada enseguida: quien lee la salida la ve al momento. */
+    private void emitir(ObjectNode e) {
+        byte[] json;
+        try {
+            json = (MAPPER.writeValueAsString(e) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            perder("no se pudo serializar " + e.path("regla").asText() + ": " + ex.getMessage());
+            return;
+        }
+        // La línea entera en una sola escritura, así dos corridas no se intercalan
+        boolean error;
+        synchronized (out) {
+            out.write(json, 0, json.length);
+            error = out.checkError();
+        }
+        if (error) {
+            perder("no se pudo escribir en la salida de alertas");
+            return;
+        }
+        emitidas++;
+    }
+
+    private void perder(String motivo) {
+        if (perdidas++ == 0) System.err.println("Evento de alerta perdido: " + motivo);
+    }
+
+    /** Estado incremental de un room. */
+    private static final class Room {
+        final double expectedTemp;
+        final double energyKWh;
+        final boolean configurado;
+        boolean heaterOn;
+
+        /** -1 debajo del rango, 1 arriba, 0 adentro. */
+        int lado;
+        long fueraDesde = SIN_RACHA;
+        boolean fueraAvisada;
+
+        long enfriandoDesde = SIN_RACHA;
+        double tempInicio;
+        boolean enfriandoAvisada;
+
+        Room(double expectedTemp, double energyKWh, boolean configurado) {
+            this.expectedTemp = expectedTemp;
+            this.energyKWh = energyKWh;
+            this.configurado = configurado;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package analizador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * InputStream sobre el rango [from, to) de un FileChannel, con lecturas
+ * posicionales: varios hilos pueden leer rangos distintos del mismo canal.
+ * Cerrarlo no cierra el canal.
+ */
+final class ChannelRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long pos;
+    private final long end;
+
+    ChannelRangeInputStream(FileChannel channel, long from, long to) {
+        this.channel = channel;
+        this.pos = from;
+        this.end = to;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (pos >= end) return -1;
+        int want = (int) Math.min(len, end - pos);
+        int n = channel.read(ByteBuffer.wrap(b, off, want), pos);
+        if (n < 0) return -1;
+        pos += n;
+        return n;
+    }
+}
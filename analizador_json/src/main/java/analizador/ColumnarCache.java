@@ -0,0 +1,369 @@
+package analizador;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Caché columnar de los registros ya parseados del log del simulador, guardada
+ * al lado del log como "&lt;log&gt;.cols".
+ *
+ * Formato (big-endian):
+ * <pre>
+ *   int  MAGIC "ANCC", int VERSION
+ *   long tamaño y long mtime del log de origen (invalidación)
+ *   long total de líneas del log, long cantidad de registros N
+ *   columnas, cada una alineada a 8 bytes:
+ *     long[N] simTimeMs, int[N] roomId, double[N] T_C, byte[N] flags,
+ *     double[N] energy_Wh, double[N] lowKWh, double[N] highKWh
+ * </pre>
+ * Sólo se guardan los registros válidos, en el orden del archivo: recorrerlos
+ * con {@link SimAggregator#accept} da exactamente el mismo estado que el parseo.
+ */
+final class ColumnarCache implements Closeable {
+
+    private static final int MAGIC = 0x414E4343; // "ANCC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+
+    // Bits de la columna flags
+    private static final int HEATER_ON = 1;
+    private static final int HAS_SIM_TIME = 1 << 1;
+    private static final int HAS_ENERGY = 1 << 2;
+    private static final int HAS_LOW = 1 << 3;
+    private static final int HAS_HIGH = 1 << 4;
+
+    // Columnas en el orden del archivo y su tamaño por registro
+    private static final int TIME = 0, ROOM = 1, TEMP = 2, FLAGS = 3, ENERGY = 4, LOW = 5, HIGH = 6;
+    private static final int[] WIDTH = {8, 4, 8, 1, 8, 8, 8};
+
+    /** Registros por ventana mapeada: acota cada mapeo a unos pocos MB por columna. */
+    private static final int BLOCK_RECORDS = 1 << 20;
+
+    private final FileChannel channel;
+    private final long totalLines;
+    private final long records;
+    private final long[] columnOffset;
+
+    private ColumnarCache(FileChannel channel, long totalLines, long records) {
+        this.channel = channel;
+        this.totalLines = totalLines;
+        this.records = records;
+        this.columnOffset = layout(records);
+    }
+
+    static Path sidecar(Path logPath) {
+        return logPath.resolveSibling(logPath.getFileName() + ".cols");
+    }
+
+    /**
+     * Abre la caché del log si existe y corresponde al archivo actual
+     * (mismo tamaño y fecha de modificación). Si no, devuelve null.
+     */
+    static ColumnarCache open(Path logPath) throws IOException {
+        Path path = sidecar(logPath);
+        if (!Files.exists(path)) return null;
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES
+                    || header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getLong() != Files.size(logPath)
+                    || header.getLong() != Files.getLastModifiedTime(logPath).toMillis()) {
+                channel.close();
+                return null;
+            }
+            long totalLines = header.getLong();
+            long records = header.getLong();
+            ColumnarCache cache = new ColumnarCache(channel, totalLines, records);
+            if (channel.size() < cache.columnOffset[HIGH + 1]) {
+                channel.close();
+                return null;
+            }
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long records() {
+        return records;
+    }
+
+    /** Acumula todos los registros de la caché en {@code target}, como si se leyera el log. */
+    void replay(SimAggregator target, SimulationConfig config, int threads) throws IOException {
+        long parts = Math.min((long) threads * 4, records / BLOCK_RECORDS);
+        if (threads <= 1 || parts <= 1) {
+            replay(target, 0, records);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<SimAggregator>> futures = new ArrayList<>();
+                for (long i = 0; i < parts; i++) {
+                    long from = records * i / parts;
+                    long to = records * (i + 1) / parts;
+                    futures.add(pool.submit(() -> {
+                        SimAggregator part = target.newChunk(config);
+                        replay(part, from, to);
+                        return part;
+                    }));
+                }
+                for (Future<SimAggregator> f : futures) target.merge(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Lectura de la caché interrumpida", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                throw new IOException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        target.totalLines += totalLines;
+        target.contador.lineas += totalLines;
+    }
+
+    private void replay(SimAggregator target, long from, long to) throws IOException {
+        SimRecord rec = new SimRecord();
+        ByteBuffer[] cols = new ByteBuffer[WIDTH.length];
+        target.contador.empezar();
+
+        for (long block = from; block < to; block += BLOCK_RECORDS) {
+            int n = (int) Math.min(BLOCK_RECORDS, to - block);
+            for (int c = 0; c < cols.length; c++) {
+                cols[c] = map(c, block, n);
+            }
+            for (int i = 0; i < n; i++) {
+                int flags = cols[FLAGS].get(i);
+                rec.simTimeMs = cols[TIME].getLong(i * 8);
+                rec.roomId = cols[ROOM].getInt(i * 4);
+                rec.tempC = cols[TEMP].getDouble(i * 8);
+                rec.energyWh = cols[ENERGY].getDouble(i * 8);
+                rec.lowKWh = cols[LOW].getDouble(i * 8);
+                rec.highKWh = cols[HIGH].getDouble(i * 8);
+                rec.heaterOn = (flags & HEATER_ON) != 0;
+                rec.hasSimTime = (flags & HAS_SIM_TIME) != 0;
+                rec.hasEnergyWh = (flags & HAS_ENERGY) != 0;
+                rec.hasLowKWh = (flags & HAS_LOW) != 0;
+                rec.hasHighKWh = (flags & HAS_HIGH) != 0;
+                rec.hasRoomId = true;
+                rec.hasTemp = true;
+                target.accept(rec);
+            }
+        }
+        target.contador.parar();
+    }
+
+    private MappedByteBuffer map(int column, long first, int count) throws IOException {
+        long pos = columnOffset[column] + first * WIDTH[column];
+        return channel.map(FileChannel.MapMode.READ_ONLY, pos, (long) count * WIDTH[column]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Offset de cada columna; el último elemento es el tamaño total del archivo. */
+    private static long[] layout(long records) {
+        long[] offsets = new long[WIDTH.length + 1];
+        long pos = HEADER_BYTES;
+        for (int c = 0; c < WIDTH.length; c++) {
+            offsets[c] = pos;
+            pos = align8(pos + records * WIDTH[c]);
+        }
+        offsets[WIDTH.length] = pos;
+        return offsets;
+    }
+
+    private static long align8(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    // ===============================================================
+    // Escritura
+    // ===============================================================
+
+    /**
+     * Arma la caché durante la primera lectura del log. Cada tramo leído escribe sus
+     * columnas en archivos temporales propios ({@link #newPart}); {@link #finish}
+     * las concatena en el orden en que se pidieron las partes.
+     */
+    static final class Builder {
+
+        private final Path logPath;
+        private final Path tmpDir;
+        private final long sourceSize;
+        private final long sourceMtime;
+        private final List<Part> parts = new ArrayList<>();
+
+        private Builder(Path logPath) throws IOException {
+            this.logPath = logPath;
+            this.sourceSize = Files.size(logPath);
+            this.sourceMtime = Files.getLastModifiedTime(logPath).toMillis();
+            this.tmpDir = Files.createTempDirectory(logPath.toAbsolutePath().getParent(),
+                    logPath.getFileName() + ".cols.");
+        }
+
+        static Builder create(Path logPath) throws IOException {
+            return new Builder(logPath);
+        }
+
+        Part newPart() {
+            Part part = new Part(tmpDir, parts.size());
+            parts.add(part);
+            return part;
+        }
+
+        /**
+         * Escribe la caché definitiva con un move atómico. Si el log cambió mientras
+         * se leía, la caché no se guarda: no correspondería a ningún estado del archivo.
+         */
+        boolean finish(long totalLines) throws IOException {
+            try {
+                long records = 0;
+                for (Part part : parts) {
+                    part.close();
+                    records += part.records;
+                }
+                if (Files.size(logPath) != sourceSize
+                        || Files.getLastModifiedTime(logPath).toMillis() != sourceMtime) {
+                    return false;
+                }
+
+                Path tmp = tmpDir.resolve("cols");
+                long[] offsets = layout(records);
+                try (FileChannel out = FileChannel.open(tmp,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                    header.putInt(MAGIC).putInt(VERSION)
+                            .putLong(sourceSize).putLong(sourceMtime)
+                            .putLong(totalLines).putLong(records)
+                            .flip();
+                    write(out, header, 0);
+
+                    for (int c = 0; c < WIDTH.length; c++) {
+                        long pos = offsets[c];
+                        for (Part part : parts) {
+                            if (part.records == 0) continue;
+                            try (FileChannel in = FileChannel.open(part.column(c), StandardOpenOption.READ)) {
+                                long size = in.size();
+                                for (long done = 0; done < size; ) {
+                                    done += in.transferTo(done, size - done, out.position(pos + done));
+                                }
+                                pos += size;
+                            }
+                        }
+                    }
+                    // Relleno final para que el tamaño coincida con el layout
+                    if (out.size() < offsets[WIDTH.length]) {
+                        write(out, ByteBuffer.allocate((int) (offsets[WIDTH.length] - out.size())), out.size());
+                    }
+                }
+                Files.move(tmp, sidecar(logPath),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } finally {
+                abort();
+            }
+        }
+
+        /** Descarta los temporales. */
+        void abort() throws IOException {
+            for (Part part : parts) part.close();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(tmpDir)) {
+                for (Path f : files) Files.deleteIfExists(f);
+            }
+            Files.deleteIfExists(tmpDir);
+        }
+
+        private static void write(FileChannel out, ByteBuffer buf, long pos) throws IOException {
+            while (buf.hasRemaining()) pos += out.write(buf, pos);
+        }
+    }
+
+    /**
+     * Columnas de un tramo, escritas en streams secuenciales mientras se parsea.
+     * Los archivos se abren con el primer registro y se cierran al terminar el
+     * tramo, así sólo los tramos que se están leyendo tienen archivos abiertos.
+     */
+    static final class Part {
+
+        private final Path dir;
+        private final int index;
+        private final DataOutputStream[] out = new DataOutputStream[WIDTH.length];
+        private long records;
+        private boolean closed;
+
+        private Part(Path dir, int index) {
+            this.dir = dir;
+            this.index = index;
+        }
+
+        /** Agrega un registro válido; se llama desde el loop de lectura. */
+        void add(SimRecord rec) {
+            if (records == 0) open();
+            int flags = (rec.heaterOn ? HEATER_ON : 0)
+                    | (rec.hasSimTime ? HAS_SIM_TIME : 0)
+                    | (rec.hasEnergyWh ? HAS_ENERGY : 0)
+                    | (rec.hasLowKWh ? HAS_LOW : 0)
+                    | (rec.hasHighKWh ? HAS_HIGH : 0);
+            try {
+                out[TIME].writeLong(rec.simTimeMs);
+                out[ROOM].writeInt(rec.roomId);
+                out[TEMP].writeDouble(rec.tempC);
+                out[FLAGS].writeByte(flags);
+                out[ENERGY].writeDouble(rec.energyWh);
+                out[LOW].writeDouble(rec.lowKWh);
+                out[HIGH].writeDouble(rec.highKWh);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            records++;
+        }
+
+        private void open() {
+            try {
+                for (int c = 0; c < out.length; c++) {
+                    out[c] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(column(c)), 1 << 15));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Path column(int c) {
+            return dir.resolve(index + "." + c);
+        }
+
+        /** Cierra las columnas del tramo; las siguientes llamadas no hacen nada. */
+        void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            for (DataOutputStream o : out) {
+                if (o != null) o.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package analizador;
+
+import java.io.PrintStream;
+
+/**
+ * Formato de texto de los mensajes de progreso y del reporte. Cada analizador
+ * conserva el suyo; las {@link Metrica}s elegidas sólo deciden qué líneas
+ * aparecen, no cómo se escriben las comunes.
+ */
+enum Estilo {
+
+    /** El de Analizador: sin emojis y con sangría simple en cada room. */
+    PLANO("", "Configuración cargada correctamente:", "  - Room %d - expectedTemp=%.1f°C%n",
+            "Analizando interacciones HTTP...", "%nResumen del análisis:%n",
+            "  ", "  Temperatura: min=%.2f / max=%.2f%n") {
+        @Override
+        void sinHttp(PrintStream out) {
+            out.println("Archivo HTTP log no encontrado.");
+        }
+
+        @Override
+        void duracion(double durationSec, PrintStream out) {
+            out.printf("Duración simulada: %.1f s%n", durationSec);
+        }
+    },
+
+    /** El de AnalizadorParametrizado y AnalizadorLote. */
+    EMOJI("❌ ", "✅ Configuración cargada correctamente:", "  - Room %d → expectedTemp=%.1f°C%n",
+            "📡 Analizando interacciones HTTP...", "%n📊 Resumen del análisis:%n",
+            "  - ", "  - Temperatura: min=%.2f°C / max=%.2f°C%n") {
+        @Override
+        void avisoSinHttp(PrintStream err) {
+            err.println("⚠️ Archivo HTTP log no encontrado, se omite análisis de POST.");
+        }
+
+        @Override
+        void duracion(double durationSec, PrintStream out) {
+            long hours = (long) (durationSec / 3600);
+            long minutes = (long) ((durationSec % 3600) / 60);
+            long seconds = (long) (durationSec % 60);
+            out.printf("🕒 Duración simulada: %.1f s (%02dh %02dm %02ds)%n",
+                    durationSec, hours, minutes, seconds);
+        }
+
+        @Override
+        void energia(RoomStats st, PrintStream out) {
+            out.printf("  - Energía acumulada: %.3f kWh%n", st.lastEnergyWh / 1000.0);
+        }
+    };
+
+    /** Antes de los mensajes de error (archivo no encontrado, opción inválida). */
+    final String error;
+    final String configCargada;
+    /** Formato de cada room de la configuración: id y temperatura esperada. */
+    final String roomConfig;
+    final String analizandoHttp;
+    final String resumen;
+    /** Sangría de las líneas dentro del bloque de un room. */
+    final String item;
+    final String temperatura;
+
+    Estilo(String error, String configCargada, String roomConfig, String analizandoHttp,
+           String resumen, String item, String temperatura) {
+        this.error = error;
+        this.configCargada = configCargada;
+        this.roomConfig = roomConfig;
+        this.analizandoHttp = analizandoHttp;
+        this.resumen = resumen;
+        this.item = item;
+        this.temperatura = temperatura;
+    }
+
+    /** Al arrancar, si falta el access log. */
+    void avisoSinHttp(PrintStream err) { }
+
+    /** Después del log del simulador, en lugar de {@link #analizandoHttp}. */
+    void sinHttp(PrintStream out) { }
+
+    abstract void duracion(double durationSec, PrintStream out);
+
+    /** Energía acumulada del room, después del heater. */
+    void energia(RoomStats st, PrintStream out) { }
+}
@@ -0,0 +1,146 @@
+package analizador;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalTime;
+
+/**
+ * Modo --follow: mantiene los logs abiertos, ingiere sólo lo que se agrega y
+ * vuelve a imprimir el reporte cada {@code --interval}.
+ *
+ * Con --checkpoint se guardan periódicamente los offsets de ambos logs y el
+ * estado acumulado; al reiniciar, el análisis sigue desde ahí en vez de
+ * releer todo. El checkpoint se descarta si cambió la configuración.
+ */
+final class FollowSession {
+
+    private static final int MAGIC = 0x414E434B; // "ANCK"
+    private static final int VERSION = 4;
+
+    private final Path configPath;
+    private final SimAggregator sim;
+    /** null si ninguna métrica usa el access log: no se lo sigue. */
+    private final HttpInteractions http;
+    private final LogFollower simFollower;
+    private final LogFollower httpFollower;
+    private final Opciones opciones;
+    /** Métricas calculadas ({@link Metrica#mask}); un checkpoint con otras no sirve. */
+    private final int metricas;
+
+    FollowSession(Path logPath, Path configPath, Path httpPath,
+                  SimAggregator sim, HttpInteractions http, Opciones opciones, int metricas) {
+        this.configPath = configPath;
+        this.sim = sim;
+        this.http = http;
+        this.simFollower = new LogFollower(logPath);
+        this.httpFollower = new LogFollower(httpPath);
+        this.opciones = opciones;
+        this.metricas = metricas;
+    }
+
+    /** Corre hasta que se interrumpa el hilo (o se mate el proceso). */
+    void run(Runnable report) throws IOException {
+        if (opciones.checkpoint != null && restore()) {
+            System.out.printf("Checkpoint restaurado: %s (sim-log desde byte %d, http-log desde byte %d)%n%n",
+                    opciones.checkpoint, simFollower.offset(), httpFollower.offset());
+        }
+
+        try {
+            boolean first = true;
+            while (!Thread.currentThread().isInterrupted()) {
+                long read = poll();
+                if (read > 0 || first) {
+                    System.out.printf("%n===== Actualización %s =====%n", LocalTime.now().withNano(0));
+                    report.run();
+                    if (opciones.checkpoint != null) save();
+                    first = false;
+                }
+                try {
+                    Thread.sleep(opciones.intervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            simFollower.close();
+            httpFollower.close();
+        }
+    }
+
+    /** Ingiere lo nuevo de ambos logs. Devuelve los bytes consumidos. */
+    long poll() throws IOException {
+        sim.etapa.iniciar();
+        sim.contador.empezar();
+        long read = simFollower.poll(sim::acceptLine);
+        sim.contador.parar();
+        sim.volcar();
+        if (sim.alertas != null) sim.alertas.cerrar();
+        sim.etapa.terminar();
+        if (http != null) {
+            http.etapa.iniciar();
+            read += httpFollower.poll(line -> http.acceptLine(line, sim));
+            http.volcar();
+            http.etapa.terminar();
+        }
+        return read;
+    }
+
+    // ===============================================================
+    // Checkpoint
+    // ===============================================================
+    void save() throws IOException {
+        Path target = opciones.checkpoint;
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(configPath));
+            out.writeLong(Files.getLastModifiedTime(configPath).toMillis());
+            out.writeInt(metricas);
+            out.writeLong(opciones.bucketMs);
+            simFollower.write(out);
+            httpFollower.write(out);
+            sim.write(out);
+            if (http != null) http.write(out);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    boolean restore() throws IOException {
+        Path source = opciones.checkpoint;
+        if (!Files.exists(source)) return false;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Checkpoint con formato desconocido, se ignora: " + source);
+                return false;
+            }
+            if (in.readLong() != Files.size(configPath)
+                    || in.readLong() != Files.getLastModifiedTime(configPath).toMillis()) {
+                System.err.println("La configuración cambió desde el checkpoint, se analiza desde cero.");
+                return false;
+            }
+            if (in.readInt() != metricas) {
+                System.err.println("El checkpoint es de otras --metricas, se analiza desde cero.");
+                return false;
+            }
+            if (in.readLong() != opciones.bucketMs) {
+                System.err.println("El checkpoint es de otro --buckets, se analiza desde cero.");
+                return false;
+            }
+            simFollower.read(in);
+            httpFollower.read(in);
+            sim.read(in);
+            if (http != null) http.read(in);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Paso 3 de los analizadores: cuenta por room los POST /switch/{id} con status
+ * 200 del access log, sin repetir el mismo room y @timestamp (ver {@link SwitchDedup}).
+ */
+final class HttpInteractions {
+
+    private static final String SWITCH_PREFIX = "/switch/";
+    private static final long NO_ROOM = Long.MIN_VALUE;
+
+    final SwitchDedup dedup;
+    IngestStats.Etapa etapa = new IngestStats.Etapa("access-log");
+    /** Conteos del hilo que agrega (el que deduplica), todavía no volcados a {@link #etapa}. */
+    final IngestStats.Contador contador = new IngestStats.Contador();
+    private final HttpRecordReader reader = new HttpRecordReader();
+    private final HttpRecord http = new HttpRecord();
+
+    HttpInteractions() {
+        this(0);
+    }
+
+    /** {@code dedupWindowMs > 0}: deduplica sólo dentro de esa ventana de @timestamp. */
+    HttpInteractions(long dedupWindowMs) {
+        dedup = new SwitchDedup(dedupWindowMs);
+    }
+
+    void ingest(Path httpPath, SimAggregator sim) throws IOException {
+        ingest(LogInput.open(httpPath), sim);
+    }
+
+    /** Lee el access log de {@code in}, que se cierra al terminar. */
+    void ingest(InputStream in, SimAggregator sim) throws IOException {
+        etapa.iniciar();
+        contador.empezar();
+        try (LineScanner scanner = new LineScanner(in)) {
+            int n = 0;
+            while (scanner.next()) {
+                acceptLine(scanner, sim);
+                if (++n == IngestStats.LINEAS_POR_VOLCADO) {
+                    volcar();
+                    n = 0;
+                }
+            }
+        } finally {
+            volcar();
+            etapa.terminar();
+        }
+    }
+
+    void acceptLine(LineScanner line, SimAggregator sim) {
+        contador.lineas++;
+        contador.bytes += line.length() + 1;
+        IngestStats.Motivo descarte = parse(line, reader, http);
+        if (descarte == null) {
+            count(http.roomId, http.timestamp, sim);
+        } else {
+            contador.descartar(descarte);
+        }
+    }
+
+    /** Cuenta el POST si no está repetido. */
+    void count(int roomId, String timestamp, SimAggregator sim) {
+        if (dedup.firstSeen(roomId, timestamp)) {
+            sim.room(roomId).userInteractions++;
+            contador.registros++;
+        } else {
+            contador.descartar(IngestStats.Motivo.DUPLICADO);
+        }
+    }
+
+    /** Vuelca el contador a la etapa, midiendo lo asignado por el hilo actual. */
+    void volcar() {
+        contador.parar();
+        etapa.volcar(contador);
+        contador.empezar();
+    }
+
+    /**
+     * Prefiltro y parseo de una línea, sin deduplicar. Devuelve null si es un
+     * POST /switch/{id} con @timestamp, y deja el room en {@code out.roomId};
+     * si no, el motivo del descarte. Ni una línea cortada ni un id que no es
+     * número tiran excepción.
+     */
+    static IngestStats.Motivo parse(LineScanner line, HttpRecordReader reader, HttpRecord out) {
+        if (!LogPatterns.isSwitchPost(line)) return IngestStats.Motivo.NO_SWITCH;
+        if (line.lastIndexOf((byte) '}') < 0) return IngestStats.Motivo.TRUNCADO;
+
+        try {
+            if (!reader.read(line.buffer(), line.start(), line.length(), out)) {
+                return IngestStats.Motivo.JSON_INVALIDO;
+            }
+        } catch (IOException | RuntimeException e) {
+            return IngestStats.Motivo.JSON_INVALIDO;
+        }
+        String path = out.path;
+        if (!path.startsWith(SWITCH_PREFIX) || out.timestamp.isEmpty()) return IngestStats.Motivo.SIN_TIMESTAMP;
+
+        int end = path.indexOf('/', SWITCH_PREFIX.length());
+        long room = parseRoom(path, SWITCH_PREFIX.length(), end < 0 ? path.length() : end);
+        if (room == NO_ROOM) return IngestStats.Motivo.ROOM_INVALIDO;
+        out.roomId = (int) room;
+        return null;
+    }
+
+    /** Como Integer.parseInt(s, from, to, 10), pero devuelve {@link #NO_ROOM} en vez de tirar. */
+    static long parseRoom(String s, int from, int to) {
+        if (from >= to) return NO_ROOM;
+        boolean negative = false;
+        char first = s.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) return NO_ROOM;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return NO_ROOM;
+            value = value * 10 + d;
+            if (value > (long) Integer.MAX_VALUE + 1) return NO_ROOM;
+        }
+        if (negative) value = -value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? NO_ROOM : value;
+    }
+
+    void write(DataOutput out) throws IOException {
+        dedup.write(out);
+    }
+
+    void read(DataInput in) throws IOException {
+        dedup.read(in);
+    }
+}
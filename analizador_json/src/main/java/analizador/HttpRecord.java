@@ -0,0 +1,19 @@
+package analizador;
+
+/**
+ * Registro mutable de una línea del access log. Igual que {@link SimRecord},
+ * {@link HttpRecordReader} lo reutiliza entre líneas.
+ */
+final class HttpRecord {
+
+    String path = "";
+    String timestamp = "";
+    /** Room de /switch/{id}; lo completa {@link HttpInteractions#parse}. */
+    int roomId;
+
+    void clear() {
+        path = "";
+        timestamp = "";
+        roomId = 0;
+    }
+}
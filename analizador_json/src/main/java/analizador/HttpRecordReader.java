@@ -0,0 +1,54 @@
+package analizador;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Lee "path" y "@timestamp" de una línea del access log con el parser de
+ * streaming, directo desde los bytes de la línea. Equivale a
+ * root.path(...).asText("") sobre el árbol JSON.
+ */
+final class HttpRecordReader {
+
+    private final JsonFactory factory;
+
+    HttpRecordReader() {
+        this(new JsonFactory());
+    }
+
+    HttpRecordReader(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    boolean read(byte[] buf, int off, int len, HttpRecord out) throws IOException {
+        out.clear();
+        try (JsonParser p = factory.createParser(buf, off, len)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return false;
+
+            String field;
+            while ((field = p.nextFieldName()) != null) {
+                JsonToken t = p.nextToken();
+                switch (field) {
+                    case "path":
+                        out.path = asText(p, t);
+                        break;
+                    case "@timestamp":
+                        out.timestamp = asText(p, t);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            return p.currentToken() == JsonToken.END_OBJECT;
+        }
+    }
+
+    private static String asText(JsonParser p, JsonToken t) throws IOException {
+        if (t.isScalarValue() && t != JsonToken.VALUE_NULL) return p.getText();
+        p.skipChildren();
+        return "";
+    }
+}
@@ -0,0 +1,274 @@
+package analizador;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentación de la ingesta: por etapa (log del simulador y access log),
+ * tiempo de pared, líneas y bytes por segundo, líneas descartadas por
+ * {@link Motivo} y bytes asignados por registro.
+ *
+ * El camino caliente sólo incrementa campos de un {@link Contador}, que es de
+ * un solo hilo; cada tanto (fin de tramo, de lote o cada
+ * {@link #LINEAS_POR_VOLCADO} líneas) se vuelca a su {@link Etapa}, que sí es
+ * segura entre hilos. Las etapas se publican como MBeans
+ * ({@code analizador:type=Ingesta,etapa=...}, con {@code corrida=...} en un
+ * lote) mientras dura el pipeline, y --stats imprime el resumen.
+ */
+final class IngestStats {
+
+    /** Cada cuántas líneas la lectura de corrido vuelca su contador a la etapa. */
+    static final int LINEAS_POR_VOLCADO = 1 << 16;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean MIDE_ASIGNACION = midesAsignacion();
+
+    final Etapa simulador = new Etapa("simulador");
+    final Etapa accessLog = new Etapa("access-log");
+    private final List<ObjectName> registrados = new ArrayList<>();
+
+    enum Tipo { FILTRADA, SALTEADA, FALLIDA }
+
+    /** Por qué una línea no llegó a ser un registro. */
+    enum Motivo {
+        STDOUT(Tipo.FILTRADA, "logger STDOUT"),
+        FUERA_DE_RANGO(Tipo.FILTRADA, "fuera de --from/--to"),
+        NO_SWITCH(Tipo.FILTRADA, "no es POST /switch/ 200"),
+        DUPLICADO(Tipo.FILTRADA, "POST repetido"),
+        SIN_JSON(Tipo.SALTEADA, "sin objeto JSON"),
+        INCOMPLETO(Tipo.SALTEADA, "sin T_C o roomId"),
+        SIN_TIMESTAMP(Tipo.SALTEADA, "sin path /switch/{id} o @timestamp"),
+        TRUNCADO(Tipo.FALLIDA, "JSON sin cerrar"),
+        JSON_INVALIDO(Tipo.FALLIDA, "JSON inválido"),
+        ROOM_INVALIDO(Tipo.FALLIDA, "room no numérico");
+
+        final Tipo tipo;
+        final String descripcion;
+
+        Motivo(Tipo tipo, String descripcion) {
+            this.tipo = tipo;
+            this.descripcion = descripcion;
+        }
+    }
+
+    /**
+     * Registra las dos etapas en el MBeanServer de la plataforma; si ya estaban,
+     * las reemplaza. {@code corrida} (null fuera de AnalizadorLote) va como clave
+     * del nombre, así las corridas de un lote que se ingieren a la vez no se pisan.
+     */
+    void registrar(String corrida) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Etapa etapa : new Etapa[] {simulador, accessLog}) {
+            try {
+                ObjectName name = new ObjectName("analizador:type=Ingesta"
+                        + (corrida != null ? ",corrida=" + ObjectName.quote(corrida) : "")
+                        + ",etapa=" + etapa.nombre);
+                if (server.isRegistered(name)) server.unregisterMBean(name);
+                server.registerMBean(etapa, name);
+                registrados.add(name);
+            } catch (JMException e) {
+                System.err.println("No se pudo registrar el MBean de " + etapa.nombre + ": " + e);
+            }
+        }
+    }
+
+    /** Saca los MBeans de {@link #registrar}; al terminar el pipeline, para no retener sus etapas. */
+    void desregistrar() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registrados) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Ya no estaba registrado: nada que sacar
+            }
+        }
+        registrados.clear();
+    }
+
+    void imprimir(Estilo estilo, PrintStream out) {
+        out.printf(estilo == Estilo.PLANO ? "%nEstadísticas de ingesta:%n" : "%n⏱️ Estadísticas de ingesta:%n");
+        simulador.imprimir(out);
+        accessLog.imprimir(out);
+    }
+
+    /** Bytes asignados hasta ahora por el hilo actual, o 0 si la JVM no lo mide. */
+    static long asignadoHilo() {
+        return MIDE_ASIGNACION ? ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static boolean midesAsignacion() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    // ===============================================================
+    // Contador de un hilo
+    // ===============================================================
+
+    /** Conteos sin sincronizar de un lector, tramo o lote; se vuelcan con {@link Etapa#volcar}. */
+    static final class Contador {
+        long lineas;
+        long bytes;
+        long registros;
+        long asignado;
+        final long[] descartes = new long[Motivo.values().length];
+        private long marca;
+
+        void descartar(Motivo motivo) {
+            descartes[motivo.ordinal()]++;
+        }
+
+        /** Empieza a medir la asignación del hilo actual. */
+        void empezar() {
+            marca = asignadoHilo();
+        }
+
+        /** Suma lo asignado por el hilo actual desde {@link #empezar}. */
+        void parar() {
+            asignado += asignadoHilo() - marca;
+        }
+    }
+
+    // ===============================================================
+    // Etapa (MBean)
+    // ===============================================================
+
+    public interface EtapaMBean {
+        long getLineas();
+        long getBytes();
+        long getRegistros();
+        long getFiltradas();
+        long getSalteadas();
+        long getFallidas();
+        /** Descartes por motivo, "motivo=n" separados por coma. */
+        String getDescartes();
+        double getSegundos();
+        double getLineasPorSegundo();
+        double getMBPorSegundo();
+        double getBytesAsignadosPorRegistro();
+    }
+
+    static final class Etapa implements EtapaMBean {
+        final String nombre;
+        private final LongAdder lineas = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder registros = new LongAdder();
+        private final LongAdder asignado = new LongAdder();
+        private final LongAdder[] descartes = new LongAdder[Motivo.values().length];
+        private volatile long inicio;
+        private volatile long fin;
+
+        Etapa(String nombre) {
+            this.nombre = nombre;
+            for (int i = 0; i < descartes.length; i++) descartes[i] = new LongAdder();
+        }
+
+        /** Marca el comienzo de la etapa; si ya había empezado, no cambia. */
+        synchronized void iniciar() {
+            if (inicio == 0) inicio = System.nanoTime();
+            fin = 0;
+        }
+
+        void terminar() {
+            fin = System.nanoTime();
+        }
+
+        /** Suma {@code c} a la etapa y lo deja en cero. */
+        void volcar(Contador c) {
+            lineas.add(c.lineas);
+            bytes.add(c.bytes);
+            registros.add(c.registros);
+            asignado.add(c.asignado);
+            for (int i = 0; i < descartes.length; i++) {
+                if (c.descartes[i] != 0) descartes[i].add(c.descartes[i]);
+                c.descartes[i] = 0;
+            }
+            c.lineas = 0;
+            c.bytes = 0;
+            c.registros = 0;
+            c.asignado = 0;
+        }
+
+        long descartes(Motivo motivo) {
+            return descartes[motivo.ordinal()].sum();
+        }
+
+        private long descartes(Tipo tipo) {
+            long n = 0;
+            for (Motivo m : Motivo.values()) {
+                if (m.tipo == tipo) n += descartes(m);
+            }
+            return n;
+        }
+
+        @Override public long getLineas() { return lineas.sum(); }
+        @Override public long getBytes() { return bytes.sum(); }
+        @Override public long getRegistros() { return registros.sum(); }
+        @Override public long getFiltradas() { return descartes(Tipo.FILTRADA); }
+        @Override public long getSalteadas() { return descartes(Tipo.SALTEADA); }
+        @Override public long getFallidas() { return descartes(Tipo.FALLIDA); }
+
+        @Override
+        public String getDescartes() {
+            StringBuilder sb = new StringBuilder();
+            for (Motivo m : Motivo.values()) {
+                long n = descartes(m);
+                if (n == 0) continue;
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(m.name().toLowerCase()).append('=').append(n);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public double getSegundos() {
+            long start = inicio;
+            if (start == 0) return 0;
+            long end = fin;
+            return ((end != 0 ? end : System.nanoTime()) - start) / 1e9;
+        }
+
+        @Override
+        public double getLineasPorSegundo() {
+            double s = getSegundos();
+            return s > 0 ? getLineas() / s : 0;
+        }
+
+        @Override
+        public double getMBPorSegundo() {
+            double s = getSegundos();
+            return s > 0 ? getBytes() / (1024.0 * 1024.0) / s : 0;
+        }
+
+        @Override
+        public double getBytesAsignadosPorRegistro() {
+            long n = getRegistros();
+            return n > 0 ? asignado.sum() / (double) n : 0;
+        }
+
+        void imprimir(PrintStream out) {
+            if (inicio == 0) return;
+            out.printf("  %s: %.2f s | %d líneas (%.0f/s, %.1f MB/s) | %d registros",
+                    nombre, getSegundos(), getLineas(), getLineasPorSegundo(), getMBPorSegundo(), getRegistros());
+            if (MIDE_ASIGNACION) out.printf(" | %.0f B asignados/registro", getBytesAsignadosPorRegistro());
+            out.println();
+            out.printf("    filtradas: %d | salteadas: %d | fallidas: %d%n",
+                    getFiltradas(), getSalteadas(), getFallidas());
+            for (Motivo m : Motivo.values()) {
+                long n = descartes(m);
+                if (n > 0) out.printf("    - %s: %d%n", m.descripcion, n);
+            }
+        }
+    }
+}
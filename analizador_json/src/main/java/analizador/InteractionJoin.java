@@ -0,0 +1,267 @@
+package analizador;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Cruza cada POST /switch/{id} del access log con la línea de tiempo del
+ * simulador (--join): estado del room y carga del sitio en el momento del
+ * request, y cómo respondió en la ventana siguiente (--join-window).
+ *
+ * Los dos logs se recorren una sola vez, a la par, como un sort-merge join por
+ * simTimeMs. El @timestamp se pasa a simTimeMs restando el origen de la
+ * simulación: --sim-epoch, o la hora de la primera línea del simulador con
+ * simTimeMs (tomada como UTC, igual que @timestamp) menos ese simTimeMs. El
+ * access log se lee con {@link #DESORDEN_MS} de ventaja para reordenar los
+ * requests que el servidor escribió un poco fuera de orden.
+ *
+ * En memoria quedan sólo el estado actual de cada room y las interacciones
+ * leídas por adelantado o con la ventana todavía abierta, no los logs; las que
+ * llegan después del final del simulador se escriben apenas se leen.
+ */
+final class InteractionJoin {
+
+    static final long DEFAULT_WINDOW_MS = 5 * 60_000;
+    /** Cuánto más allá del simulador se lee el access log para reordenarlo. */
+    private static final long DESORDEN_MS = 2_000;
+
+    static final String COLUMNAS = String.join(",",
+            "timestamp", "simTimeMs", "roomId",
+            "tempAntes", "heaterAntes", "cargaAntesKWh",
+            "tempDespues", "heaterDespues", "cargaDespuesKWh",
+            "deltaTemp", "deltaCargaKWh", "energiaWh",
+            "msHastaCambioHeater", "tempMinVentana", "tempMaxVentana", "ventanaCompleta");
+
+    private final long windowMs;
+    /** Epoch ms de simTimeMs = 0; NO_EPOCH hasta la primera línea con simTimeMs. */
+    private long origen;
+    private final RoomIndex<Room> rooms;
+    private double cargaKWh;
+
+    /** Leídas del access log, todavía adelante del simulador; por simTimeMs y orden de lectura. */
+    private final PriorityQueue<Interaccion> adelantadas = new PriorityQueue<>((a, b) -> {
+        int byTime = Long.compare(a.simTimeMs, b.simTimeMs);
+        return byTime != 0 ? byTime : Long.compare(a.orden, b.orden);
+    });
+    /** Con el estado previo tomado, esperando el final de su ventana. */
+    private final PriorityQueue<Interaccion> abiertas = new PriorityQueue<>((a, b) -> Long.compare(a.hasta, b.hasta));
+
+    private final SimRecordReader simReader = new SimRecordReader();
+    private final SimRecord rec = new SimRecord();
+    private final HttpRecordReader httpReader = new HttpRecordReader();
+    private final HttpRecord http = new HttpRecord();
+    private final SwitchDedup dedup;
+    private boolean httpTerminado;
+    private long leidas;
+    /** Epoch ms de la última interacción leída que se pudo ubicar. */
+    private long ultimaLeida = Long.MIN_VALUE;
+
+    private BufferedWriter out;
+    private final StringBuilder line = new StringBuilder(256);
+    long interacciones;
+    long completas;
+
+    /**
+     * @param simEpochMs epoch ms de simTimeMs = 0, o {@link SwitchDedup#NO_EPOCH}
+     *                   para tomarlo del log del simulador
+     */
+    InteractionJoin(SimulationConfig config, long windowMs, long simEpochMs, long dedupWindowMs) {
+        this.windowMs = windowMs;
+        this.origen = simEpochMs;
+        this.dedup = new SwitchDedup(dedupWindowMs);
+        this.rooms = new RoomIndex<>(config.rooms.stream().mapToInt(r -> r.id).toArray());
+        for (SimulationConfig.Room room : config.rooms) {
+            rooms.add(room.id, new Room(room.energyKWh));
+        }
+    }
+
+    /** Escribe el CSV en {@code csv}; los logs se leen con {@link LogInput}. */
+    void run(Path simPath, Path httpPath, boolean rotados, Path csv) throws IOException {
+        Path tmp = csv.resolveSibling(csv.getFileName() + ".tmp");
+        try (LineScanner sim = new LineScanner(LogInput.open(simPath, rotados));
+             LineScanner access = new LineScanner(LogInput.open(httpPath, rotados));
+             BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out = w;
+            w.write(COLUMNAS);
+            w.newLine();
+
+            while (sim.next()) {
+                if (SimAggregator.parse(sim, simReader, rec) != null || !rec.hasSimTime) continue;
+                if (origen == SwitchDedup.NO_EPOCH) {
+                    origen = origen(sim, rec.simTimeMs);
+                    if (origen == SwitchDedup.NO_EPOCH) {
+                        throw new IOException("El log del simulador no empieza con fecha y hora: usar --sim-epoch");
+                    }
+                }
+                avanzar(access, rec.simTimeMs);
+                aplicar(rec);
+            }
+
+            // Terminado el simulador el estado ya no cambia: lo que queda del access
+            // log se cruza con el último estado y se escribe a medida que se lee
+            while (!abiertas.isEmpty()) cerrar(abiertas.poll(), false);
+            while (!adelantadas.isEmpty()) alFinal(adelantadas.poll());
+            while (!httpTerminado) {
+                leer(access);
+                if (!adelantadas.isEmpty()) alFinal(adelantadas.poll());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        } finally {
+            out = null;
+        }
+        Files.move(tmp, csv, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Origen a partir de "yyyy-MM-dd HH:mm:ss" al principio de la línea, como UTC. */
+    private static long origen(LineScanner line, long simTimeMs) {
+        if (line.length() < 19) return SwitchDedup.NO_EPOCH;
+        String fecha = new String(line.buffer(), line.start(), 19, StandardCharsets.US_ASCII) + "Z";
+        long epochMs = SwitchDedup.epochMillis(fecha);
+        return epochMs == SwitchDedup.NO_EPOCH ? epochMs : epochMs - simTimeMs;
+    }
+
+    // ===============================================================
+    // Merge
+    // ===============================================================
+
+    /** Deja todo listo para aplicar un registro del simulador con simTimeMs {@code s}. */
+    private void avanzar(LineScanner access, long s) throws IOException {
+        long limite = origen + s + DESORDEN_MS;
+        while (!httpTerminado && ultimaLeida < limite) leer(access);
+        // Los registros con simTimeMs <= t ya están aplicados: es el estado en t
+        while (!adelantadas.isEmpty() && adelantadas.peek().simTimeMs < s) capturar(adelantadas.poll());
+        while (!abiertas.isEmpty() && abiertas.peek().hasta < s) cerrar(abiertas.poll(), true);
+    }
+
+    private void leer(LineScanner access) throws IOException {
+        while (access.next()) {
+            if (HttpInteractions.parse(access, httpReader, http) != null) continue;
+            if (!dedup.firstSeen(http.roomId, http.timestamp)) continue;
+            long epochMs = SwitchDedup.epochMillis(http.timestamp);
+            if (epochMs == SwitchDedup.NO_EPOCH) continue;
+            ultimaLeida = Math.max(ultimaLeida, epochMs);
+            adelantadas.add(new Interaccion(http.timestamp, epochMs - origen, http.roomId, leidas++, windowMs));
+            return;
+        }
+        httpTerminado = true;
+    }
+
+    /** Interacción posterior al final del simulador: se toma y se cierra enseguida. */
+    private void alFinal(Interaccion i) throws IOException {
+        capturar(i);
+        cerrar(abiertas.poll(), false);
+    }
+
+    private void aplicar(SimRecord rec) {
+        Room r = room(rec.roomId);
+        for (Interaccion i : r.abiertas) {
+            if (rec.simTimeMs > i.hasta) continue;
+            // Sin estado previo (NaN), el primer registro de la ventana abre el rango
+            i.tempMin = Double.isNaN(i.tempMin) ? rec.tempC : Math.min(i.tempMin, rec.tempC);
+            i.tempMax = Double.isNaN(i.tempMax) ? rec.tempC : Math.max(i.tempMax, rec.tempC);
+            if (i.cambioMs < 0 && rec.heaterOn != i.heaterAntes) i.cambioMs = rec.simTimeMs - i.simTimeMs;
+        }
+        if (rec.heaterOn != r.heaterOn) cargaKWh += rec.heaterOn ? r.energyKWh : -r.energyKWh;
+        r.heaterOn = rec.heaterOn;
+        r.temp = rec.tempC;
+        if (rec.hasEnergyWh) r.energyWh = rec.energyWh;
+    }
+
+    private void capturar(Interaccion i) {
+        Room r = room(i.roomId);
+        i.tempAntes = r.temp;
+        i.heaterAntes = r.heaterOn;
+        i.cargaAntes = cargaKWh;
+        i.energiaAntes = r.energyWh;
+        i.tempMin = i.tempMax = r.temp;
+        r.abiertas.add(i);
+        abiertas.add(i);
+    }
+
+    private void cerrar(Interaccion i, boolean completa) throws IOException {
+        Room r = room(i.roomId);
+        r.abiertas.remove(i);
+        interacciones++;
+        if (completa) completas++;
+
+        line.setLength(0);
+        line.append(i.timestamp).append(',').append(i.simTimeMs).append(',').append(i.roomId).append(',');
+        temp(i.tempAntes).append(',').append(i.heaterAntes).append(',').append(i.cargaAntes).append(',');
+        temp(r.temp).append(',').append(r.heaterOn).append(',').append(cargaKWh).append(',');
+        temp(r.temp - i.tempAntes).append(',').append(cargaKWh - i.cargaAntes).append(',');
+        line.append(r.energyWh - i.energiaAntes).append(',');
+        if (i.cambioMs >= 0) line.append(i.cambioMs);
+        line.append(',');
+        temp(i.tempMin).append(',');
+        temp(i.tempMax).append(',').append(completa);
+        out.append(line);
+        out.newLine();
+    }
+
+    /** Temperatura, o vacío si el room todavía no tenía registros. */
+    private StringBuilder temp(double t) {
+        return Double.isNaN(t) ? line : line.append(t);
+    }
+
+    private Room room(int roomId) {
+        Room r = rooms.get(roomId);
+        if (r == null) {
+            r = new Room(0);
+            rooms.add(roomId, r);
+        }
+        return r;
+    }
+
+    // ===============================================================
+    // Estado
+    // ===============================================================
+
+    /** Último estado conocido de un room. */
+    private static final class Room {
+        final double energyKWh;
+        double temp = Double.NaN;
+        boolean heaterOn;
+        double energyWh;
+        /** Interacciones de este room con la ventana abierta; pocas a la vez. */
+        final List<Interaccion> abiertas = new ArrayList<>(2);
+
+        Room(double energyKWh) {
+            this.energyKWh = energyKWh;
+        }
+    }
+
+    private static final class Interaccion {
+        final String timestamp;
+        final long simTimeMs;
+        final int roomId;
+        final long orden;
+        /** simTimeMs del final de la ventana. */
+        final long hasta;
+
+        double tempAntes;
+        boolean heaterAntes;
+        double cargaAntes;
+        double energiaAntes;
+        double tempMin;
+        double tempMax;
+        /** ms hasta que el heater cambió de estado dentro de la ventana; -1 si no cambió. */
+        long cambioMs = -1;
+
+        Interaccion(String timestamp, long simTimeMs, int roomId, long orden, long windowMs) {
+            this.timestamp = timestamp;
+            this.simTimeMs = simTimeMs;
+            this.roomId = roomId;
+            this.orden = orden;
+            this.hasta = simTimeMs + windowMs;
+        }
+    }
+}
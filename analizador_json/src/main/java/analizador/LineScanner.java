@@ -0,0 +1,191 @@
+package analizador;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Recorre un log línea por línea sobre bytes crudos, sin decodificar UTF-8
+ * ni crear un String por línea. Los cortes de línea son los mismos que los de
+ * BufferedReader.readLine(): "\n", "\r" o "\r\n".
+ *
+ * Uso:
+ * <pre>
+ *   while (scanner.next()) {
+ *       byte[] buf = scanner.buffer();   // línea en buf[start(), end())
+ *   }
+ * </pre>
+ * La línea actual sólo es válida hasta la próxima llamada a {@link #next()}.
+ *
+ * Con {@code completeLinesOnly} la última línea sin terminador no se devuelve:
+ * sirve para seguir un log que todavía se está escribiendo, y {@link #position()}
+ * queda al comienzo de esa línea incompleta.
+ */
+final class LineScanner implements Closeable {
+
+    private static final int DEFAULT_BUFFER = 1 << 16;
+
+    private final InputStream in;
+    private final boolean completeLinesOnly;
+    private byte[] buf;
+    private int pos;        // inicio de los bytes todavía no consumidos
+    private int limit;      // fin de los bytes leídos
+    private boolean eof;
+    private boolean skipLF; // la línea anterior terminó en '\r' justo al final del buffer
+
+    private int lineStart;
+    private int lineEnd;
+    private long lineOffset;  // offset en el stream del comienzo de la línea actual
+    private long consumed;    // bytes del stream anteriores a buf[0]
+
+    LineScanner(InputStream in) {
+        this(in, DEFAULT_BUFFER);
+    }
+
+    LineScanner(InputStream in, int bufferSize) {
+        this(in, bufferSize, false);
+    }
+
+    LineScanner(InputStream in, int bufferSize, boolean completeLinesOnly) {
+        this.in = in;
+        this.buf = new byte[Math.max(bufferSize, 16)];
+        this.completeLinesOnly = completeLinesOnly;
+    }
+
+    /** Abre el log con {@link LogInput}: si está comprimido se descomprime al vuelo. */
+    static LineScanner open(Path path) throws IOException {
+        return new LineScanner(LogInput.open(path));
+    }
+
+    /** Recorre las líneas de {@code data[0, length)} en el lugar, sin copiarlas. */
+    static LineScanner wrap(byte[] data, int length) {
+        LineScanner scanner = new LineScanner(InputStream.nullInputStream(), 16);
+        scanner.buf = data;
+        scanner.limit = length;
+        scanner.eof = true;
+        return scanner;
+    }
+
+    /** Avanza a la próxima línea. Devuelve false al llegar al final del stream. */
+    boolean next() throws IOException {
+        while (true) {
+            if (skipLF) {
+                if (pos == limit && !fill()) return false;
+                if (pos < limit && buf[pos] == '\n') pos++;
+                skipLF = false;
+            }
+
+            for (int i = pos; i < limit; i++) {
+                byte b = buf[i];
+                if (b == '\n' || b == '\r') {
+                    setLine(pos, i);
+                    pos = i + 1;
+                    if (b == '\r') {
+                        if (pos < limit) {
+                            if (buf[pos] == '\n') pos++;
+                        } else {
+                            skipLF = true;
+                        }
+                    }
+                    return true;
+                }
+            }
+
+            if (eof) {
+                if (pos < limit && !completeLinesOnly) {
+                    setLine(pos, limit);
+                    pos = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    byte[] buffer() { return buf; }
+    int start() { return lineStart; }
+    int end() { return lineEnd; }
+    int length() { return lineEnd - lineStart; }
+
+    /** Offset en bytes, dentro del stream, del comienzo de la línea actual. */
+    long lineOffset() { return lineOffset; }
+
+    /** Offset en bytes del primer byte todavía no consumido. */
+    long position() { return consumed + pos; }
+
+    /**
+     * true si la última línea terminó en '\r' justo al final de los datos: un
+     * '\n' al comienzo de lo que siga pertenece a ese mismo corte de línea.
+     */
+    boolean pendingLF() { return skipLF; }
+
+    /** Descarta un '\n' inicial (ver {@link #pendingLF()}). */
+    void skipLeadingLF() { skipLF = true; }
+
+    boolean contains(byte[] pattern) {
+        return indexOf(buf, lineStart, lineEnd, pattern) >= 0;
+    }
+
+    /** Posición absoluta en {@link #buffer()} de la última aparición de {@code b}, o -1. */
+    int lastIndexOf(byte b) {
+        for (int i = lineEnd - 1; i >= lineStart; i--) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ===============================================================
+    // Helpers
+    // ===============================================================
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end;
+        lineOffset = consumed + start;
+    }
+
+    /** Compacta el buffer (o lo agranda si la línea no entra) y lee más bytes. */
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            consumed += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            byte[] bigger = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, bigger, 0, limit);
+            buf = bigger;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    static int indexOf(byte[] buf, int from, int to, byte[] pattern) {
+        int n = pattern.length;
+        if (n == 0) return from;
+        byte first = pattern[0];
+        int max = to - n;
+        outer:
+        for (int i = from; i <= max; i++) {
+            if (buf[i] != first) continue;
+            for (int j = 1; j < n; j++) {
+                if (buf[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
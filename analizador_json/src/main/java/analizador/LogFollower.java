@@ -0,0 +1,136 @@
+package analizador;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Sigue un log que crece, al estilo de "tail -F": cada {@link #poll} entrega
+ * sólo las líneas completas agregadas desde la llamada anterior.
+ *
+ * Rotación: si el path pasa a apuntar a otro archivo, primero se termina de leer
+ * el anterior (que sigue abierto) y después se empieza el nuevo desde el byte 0.
+ * Truncado (copytruncate): si el archivo queda más chico que el offset, se vuelve
+ * a leer desde el comienzo. En ambos casos se sigue acumulando sobre el mismo estado.
+ */
+final class LogFollower implements Closeable {
+
+    interface LineConsumer {
+        void accept(LineScanner line);
+    }
+
+    private final Path path;
+    private FileChannel channel;
+    private String fileId;
+    private long offset;
+    private boolean pendingLF;
+
+    LogFollower(Path path) {
+        this.path = path;
+    }
+
+    /** Procesa las líneas nuevas. Devuelve la cantidad de bytes consumidos. */
+    long poll(LineConsumer consumer) throws IOException {
+        if (channel == null && !open()) return 0;
+
+        if (channel.size() < offset) {
+            offset = 0;
+            pendingLF = false;
+        }
+        long read = drain(consumer);
+
+        String current = fileId(path);
+        if (current != null && !current.equals(fileId)) {
+            channel.close();
+            channel = null;
+            if (open()) read += drain(consumer);
+        }
+        return read;
+    }
+
+    long offset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+        channel = null;
+    }
+
+    // ===============================================================
+    // Checkpoint
+    // ===============================================================
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(fileId == null ? "" : fileId);
+        out.writeLong(offset);
+        out.writeBoolean(pendingLF);
+    }
+
+    /**
+     * Restaura la posición guardada. Si al abrir el path resulta ser otro archivo
+     * (rotó mientras el analizador estaba detenido), se empieza desde el byte 0.
+     */
+    void read(DataInput in) throws IOException {
+        String savedId = in.readUTF();
+        long savedOffset = in.readLong();
+        boolean savedPendingLF = in.readBoolean();
+
+        close();
+        if (open() && savedId.equals(fileId)) {
+            offset = savedOffset;
+            pendingLF = savedPendingLF;
+        } else {
+            offset = 0;
+            pendingLF = false;
+        }
+    }
+
+    // ===============================================================
+    // Helpers
+    // ===============================================================
+    private boolean open() throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        fileId = fileId(path);
+        offset = 0;
+        pendingLF = false;
+        return true;
+    }
+
+    private long drain(LineConsumer consumer) throws IOException {
+        long size = channel.size();
+        if (size <= offset) return 0;
+
+        LineScanner scanner = new LineScanner(
+                new ChannelRangeInputStream(channel, offset, size), 1 << 16, true);
+        if (pendingLF) scanner.skipLeadingLF();
+        while (scanner.next()) consumer.accept(scanner);
+
+        long consumed = scanner.position();
+        offset += consumed;
+        pendingLF = scanner.pendingLF();
+        return consumed;
+    }
+
+    /** Identidad del archivo (inode en Unix; fecha de creación si no hay fileKey). */
+    private static String fileId(Path path) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            Object key = attrs.fileKey();
+            return key != null ? key.toString() : attrs.creationTime().toString();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
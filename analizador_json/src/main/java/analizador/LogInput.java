@@ -0,0 +1,308 @@
+package analizador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Apertura de logs para lectura secuencial, comprimidos o no.
+ *
+ * El formato se detecta por los magic bytes, no por la extensión: gzip (con
+ * varios miembros concatenados, como los deja {@code cat a.gz b.gz}) o zstd.
+ * Los comprimidos se descomprimen en un hilo propio que va dejando bloques ya
+ * decodificados en una cola acotada, así la descompresión se solapa con el
+ * parseo y no se escriben archivos temporales.
+ *
+ * Con {@code rotados}, antes del log se leen los rotados de logrotate
+ * ({@code <log>.N}, {@code <log>.N.gz}, ...) del más viejo al más nuevo.
+ *
+ * zstd usa aircompressor, que se busca por reflexión: si no está en el
+ * classpath sólo fallan los .zst.
+ */
+final class LogInput {
+
+    enum Formato { PLANO, GZIP, ZSTD }
+
+    private static final String ZSTD_STREAM = "io.airlift.compress.zstd.ZstdInputStream";
+    private static final int READ_AHEAD_BLOCK = 1 << 18;
+    private static final int READ_AHEAD_BLOCKS = 4;
+    private static final Pattern GLOB = Pattern.compile("[*?\\[{]");
+    /** Archivos que los analizadores dejan al lado del log. */
+    private static final Pattern SIDECAR = Pattern.compile("\\.(cols|idx|tmp)$");
+
+    private LogInput() { }
+
+    static Formato formato(Path path) throws IOException {
+        byte[] magic = new byte[4];
+        int n;
+        try (InputStream in = Files.newInputStream(path)) {
+            n = in.readNBytes(magic, 0, 4);
+        }
+        if (n >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) return Formato.GZIP;
+        if (n == 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+                && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+            return Formato.ZSTD;
+        }
+        return Formato.PLANO;
+    }
+
+    /**
+     * true si el log sólo se puede leer de corrido: comprimido o con rotados.
+     * En ese caso no hay lectura por tramos, índice de tiempo ni --follow.
+     */
+    static boolean secuencial(Path path, boolean rotados) throws IOException {
+        return formato(path) != Formato.PLANO || (rotados && archivos(path, true).size() > 1);
+    }
+
+    /** Los archivos a leer en orden: los rotados (si se piden) del más viejo al más nuevo y el log. */
+    static List<Path> archivos(Path path, boolean rotados) throws IOException {
+        List<Path> out = new ArrayList<>();
+        Path dir = path.toAbsolutePath().getParent();
+        if (rotados && dir != null) {
+            String name = path.getFileName().toString();
+            Pattern rotado = Pattern.compile(Pattern.quote(name) + "\\.(\\d+)(\\.gz|\\.zst)?");
+            TreeMap<Integer, Path> porNumero = new TreeMap<>();
+            try (DirectoryStream<Path> hermanos = Files.newDirectoryStream(dir, name + ".*")) {
+                for (Path p : hermanos) {
+                    Matcher m = rotado.matcher(p.getFileName().toString());
+                    if (m.matches()) porNumero.put(Integer.parseInt(m.group(1)), p);
+                }
+            }
+            out.addAll(porNumero.descendingMap().values());
+        }
+        if (Files.exists(path) || out.isEmpty()) out.add(path);
+        return out;
+    }
+
+    /**
+     * Los logs que nombra {@code spec}: uno o varios separados por coma, cada
+     * uno un path o un glob sobre el nombre de archivo ({@code logs/sim-*.log}).
+     * Los globs se expanden en orden alfabético y sin la caché, el índice ni
+     * temporales que dejan los analizadores. Un glob sin coincidencias queda
+     * como está, para que el error diga qué no se encontró.
+     */
+    static List<Path> expandir(String spec) throws IOException {
+        Set<Path> out = new LinkedHashSet<>();
+        for (String part : spec.split(",")) {
+            String p = part.trim();
+            if (p.isEmpty()) continue;
+            Path path = Paths.get(p);
+            String name = path.getFileName() == null ? "" : path.getFileName().toString();
+            if (!GLOB.matcher(name).find()) {
+                out.add(path);
+                continue;
+            }
+            Path dir = path.getParent() != null ? path.getParent() : Paths.get("");
+            List<Path> matches = new ArrayList<>();
+            if (Files.isDirectory(dir.toAbsolutePath())) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir.toAbsolutePath(), name)) {
+                    for (Path f : files) {
+                        String n = f.getFileName().toString();
+                        if (Files.isRegularFile(f) && !SIDECAR.matcher(n).find()) matches.add(dir.resolve(n));
+                    }
+                }
+            }
+            if (matches.isEmpty()) {
+                out.add(path);
+            } else {
+                matches.sort(null);
+                out.addAll(matches);
+            }
+        }
+        if (out.isEmpty()) throw new IllegalArgumentException("No se indicó ningún log del simulador");
+        return new ArrayList<>(out);
+    }
+
+    /** Un solo archivo, descomprimido si hace falta. */
+    static InputStream open(Path path) throws IOException {
+        Formato formato = formato(path);
+        InputStream raw = Files.newInputStream(path);
+        try {
+            switch (formato) {
+                case GZIP:
+                    return new ReadAhead(new GZIPInputStream(raw, 1 << 16), path.getFileName().toString());
+                case ZSTD:
+                    return new ReadAhead(zstd(raw), path.getFileName().toString());
+                default:
+                    return raw;
+            }
+        } catch (IOException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+    }
+
+    /** El log y, con {@code rotados}, sus rotados antes, como un único stream de líneas. */
+    static InputStream open(Path path, boolean rotados) throws IOException {
+        List<Path> files = archivos(path, rotados);
+        return files.size() == 1 ? open(files.get(0)) : new Concatenados(files.iterator());
+    }
+
+    private static InputStream zstd(InputStream raw) throws IOException {
+        try {
+            return (InputStream) Class.forName(ZSTD_STREAM).getConstructor(InputStream.class).newInstance(raw);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Log comprimido con zstd: falta " + ZSTD_STREAM + " (aircompressor) en el classpath");
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("No se pudo abrir el stream zstd", e);
+        }
+    }
+
+    // ===============================================================
+    // Descompresión en segundo plano
+    // ===============================================================
+
+    /**
+     * Lee {@code source} en un hilo aparte, de a bloques, con hasta
+     * {@link #READ_AHEAD_BLOCKS} bloques de ventaja sobre quien consume.
+     */
+    static final class ReadAhead extends InputStream {
+
+        private static final byte[] EOF = new byte[0];
+
+        private final InputStream source;
+        private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(READ_AHEAD_BLOCKS);
+        private final Thread thread;
+        private volatile IOException failure;
+        private byte[] block = new byte[0];
+        private int pos;
+        private boolean done;
+
+        ReadAhead(InputStream source, String name) {
+            this.source = source;
+            this.thread = new Thread(this::fill, "descompresion-" + name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void fill() {
+            try {
+                while (true) {
+                    byte[] buf = new byte[READ_AHEAD_BLOCK];
+                    int n = source.readNBytes(buf, 0, buf.length);
+                    if (n == 0) break;
+                    blocks.put(n == buf.length ? buf : Arrays.copyOf(buf, n));
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException("Error al descomprimir", e);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                blocks.put(EOF);
+            } catch (InterruptedException ignore) { }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureBlock()) return -1;
+            return block[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!ensureBlock()) return -1;
+            int n = Math.min(len, block.length - pos);
+            System.arraycopy(block, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /** Deja en {@code block} bytes sin leer; false al final del stream. */
+        private boolean ensureBlock() throws IOException {
+            while (pos == block.length) {
+                if (done) return false;
+                try {
+                    block = blocks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Lectura interrumpida");
+                }
+                pos = 0;
+                if (block == EOF) {
+                    done = true;
+                    if (failure != null) throw failure;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            thread.interrupt();
+            source.close();
+        }
+    }
+
+    /**
+     * Varios archivos seguidos. Si uno no termina en fin de línea se agrega un
+     * '\n', para que su última línea no se pegue a la primera del siguiente.
+     */
+    private static final class Concatenados extends InputStream {
+
+        private final Iterator<Path> files;
+        private InputStream current;
+        private int last = '\n';
+        private boolean pendingNewline;
+
+        Concatenados(Iterator<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (true) {
+                if (pendingNewline) {
+                    pendingNewline = false;
+                    last = '\n';
+                    b[off] = '\n';
+                    return 1;
+                }
+                if (current == null) {
+                    if (!files.hasNext()) return -1;
+                    current = open(files.next());
+                }
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    last = b[off + n - 1];
+                    return n;
+                }
+                current.close();
+                current = null;
+                pendingNewline = files.hasNext() && last != '\n' && last != '\r';
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) current.close();
+        }
+    }
+}
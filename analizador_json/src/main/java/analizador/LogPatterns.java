@@ -0,0 +1,29 @@
+package analizador;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Patrones de bytes de los prefiltros de línea. Son ASCII, así que buscarlos
+ * directamente sobre UTF-8 da el mismo resultado que String.contains(...).
+ */
+final class LogPatterns {
+
+    static final byte[] STDOUT_LOGGER = ascii("\"logger\":\"STDOUT\"");
+
+    static final byte[] METHOD_POST = ascii("\"method\":\"POST\"");
+    static final byte[] SWITCH_PATH = ascii("\"path\":\"/switch/");
+    static final byte[] STATUS_200  = ascii("\"status\":200");
+
+    private LogPatterns() { }
+
+    /** Prefiltro del paso 3: POST /switch/{id} con status 200. */
+    static boolean isSwitchPost(LineScanner line) {
+        return line.contains(METHOD_POST)
+                && line.contains(SWITCH_PATH)
+                && line.contains(STATUS_200);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
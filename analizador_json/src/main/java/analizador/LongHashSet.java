@@ -0,0 +1,103 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Conjunto de longs con direccionamiento abierto y sondeo lineal, sin boxing:
+ * 8 bytes por slot y factor de carga de a lo sumo 1/2. El 0 no puede ocupar un
+ * slot (marca los vacíos), así que se lleva aparte.
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots = new long[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    private int size;
+    private boolean hasZero;
+
+    /** Agrega {@code key}; devuelve false si ya estaba. */
+    boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(key);
+        long cur;
+        while ((cur = slots[i]) != 0) {
+            if (cur == key) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = key;
+        if (++size * 2 > slots.length) rehash(slots.length * 2);
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == 0) return hasZero;
+        int i = slot(key);
+        long cur;
+        while ((cur = slots[i]) != 0) {
+            if (cur == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Vacía el conjunto; si había crecido mucho, libera el arreglo. */
+    void clear() {
+        if (slots.length > MIN_CAPACITY * 4 && size * 8 < slots.length) {
+            slots = new long[Math.max(MIN_CAPACITY, Integer.highestOneBit(size * 4 + 1))];
+            mask = slots.length - 1;
+        } else {
+            Arrays.fill(slots, 0);
+        }
+        size = 0;
+        hasZero = false;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        if (hasZero) out.writeLong(0);
+        for (long key : slots) {
+            if (key != 0) out.writeLong(key);
+        }
+    }
+
+    void read(DataInput in) throws IOException {
+        int n = in.readInt();
+        size = 0;
+        hasZero = false;
+        slots = new long[Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, n) * 2) * 2)];
+        mask = slots.length - 1;
+        for (int i = 0; i < n; i++) add(in.readLong());
+    }
+
+    private int slot(long key) {
+        // Mezcla de SplitMix64: los bits bajos de las claves empaquetadas se repiten mucho
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return (int) (key ^ (key >>> 31)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        mask = capacity - 1;
+        for (long key : old) {
+            if (key == 0) continue;
+            int i = slot(key);
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = key;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flujo común de los analizadores: configuración, una sola pasada por el log
+ * del simulador y, si alguna métrica lo pide, por el access log, y el reporte
+ * con las {@link Metrica}s elegidas. Cada registro se decodifica una vez y
+ * alimenta a todas; pedir varios reportes no agrega lecturas.
+ */
+final class MetricPipeline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** Las líneas de cada room que van después del heater, en este orden. */
+    private static final List<Metrica> ORDEN_ROOM = List.of(Metrica.INTERACCIONES, Metrica.TARIFA);
+
+    final Path logPath;
+    /** Los logs del simulador; si hay más de uno se mezclan por simTimeMs ({@link SimMerge}). */
+    final List<Path> logPaths;
+    final Path configPath;
+    final Path httpPath;
+    final Opciones opciones;
+    final Set<Metrica> metricas;
+    final Estilo estilo;
+
+    SimulationConfig config;
+    SimAggregator sim;
+    /** null si ninguna métrica usa el access log. */
+    HttpInteractions http;
+    /** Instrumentación de la ingesta: MBeans y, con --stats, resumen después del reporte. */
+    final IngestStats stats = new IngestStats();
+
+    /**
+     * @param porDefecto métricas a calcular si no vino --metricas
+     * @param estilo     el texto del analizador que la corre
+     */
+    MetricPipeline(Path logPath, Path configPath, Path httpPath, Opciones opciones, Set<Metrica> porDefecto,
+                   Estilo estilo) {
+        this(List.of(logPath), configPath, httpPath, opciones, porDefecto, estilo);
+    }
+
+    MetricPipeline(List<Path> logPaths, Path configPath, Path httpPath, Opciones opciones,
+                   Set<Metrica> porDefecto, Estilo estilo) {
+        this.logPath = logPaths.get(0);
+        this.logPaths = logPaths;
+        this.configPath = configPath;
+        this.httpPath = httpPath;
+        // Copia propia: cargarConfig puede ajustar el modo de ingesta, y en
+        // AnalizadorLote las mismas opciones las usan varias corridas a la vez
+        this.opciones = opciones.copia();
+        this.metricas = opciones.metricas != null ? opciones.metricas : porDefecto;
+        this.estilo = estilo;
+    }
+
+    boolean usaHttp() {
+        for (Metrica m : metricas) {
+            if (m.usaHttp()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Corrida de línea de comando completa. Los mensajes de progreso van a
+     * System.out con el reporte en texto, y a System.err con json o csv para
+     * que stdout tenga sólo el reporte.
+     */
+    void run() {
+        for (Path p : logPaths) {
+            if (!Files.exists(p)) {
+                System.err.println(estilo.error + "Archivo de log no encontrado: " + p.toAbsolutePath());
+                return;
+            }
+        }
+        if (!Files.exists(configPath)) {
+            System.err.println(estilo.error + "Archivo de configuración no encontrado: " + configPath.toAbsolutePath());
+            return;
+        }
+        if (usaHttp() && !Files.exists(httpPath)) {
+            estilo.avisoSinHttp(System.err);
+        }
+
+        stats.registrar(null);
+        try {
+            analizar();
+        } finally {
+            stats.desregistrar();
+        }
+    }
+
+    /** Configuración, ingesta (o --follow) y reporte, con los MBeans ya registrados. */
+    private void analizar() {
+        PrintStream progreso = opciones.formato == ReportWriter.Formato.TEXTO ? System.out : System.err;
+
+        // ===============================================================
+        // 1️⃣ Leer configuración
+        // ===============================================================
+        try {
+            cargarConfig();
+            // Con muchos rooms, un printf directo a la consola es un flush por línea
+            PrintStream out = new PrintStream(new BufferedOutputStream(progreso, 1 << 16), false);
+            out.println(estilo.configCargada);
+            for (int s = 0; s < sim.rooms.size(); s++) {
+                out.printf(estilo.roomConfig, sim.rooms.id(s), sim.rooms.at(s).expectedTemp);
+            }
+            out.printf("  - Energía máxima total del sitio: %.2f kWh%n%n", config.maxEnergyKWh);
+            out.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        // ===============================================================
+        // 🔁 Modo --follow: ingesta incremental y reporte periódico
+        // ===============================================================
+        if (opciones.follow) {
+            if (logPaths.size() > 1) {
+                System.err.println(estilo.error + "--follow sigue un solo log del simulador");
+                return;
+            }
+            try {
+                if (LogInput.secuencial(logPath, opciones.rotados)
+                        || (http != null && Files.exists(httpPath) && LogInput.secuencial(httpPath, opciones.rotados))) {
+                    System.err.println(estilo.error + "--follow no admite logs comprimidos ni --rotados");
+                    return;
+                }
+                new FollowSession(logPath, configPath, httpPath, sim, http, opciones, Metrica.mask(metricas))
+                        .run(() -> {
+                            reportar();
+                            exportarBuckets(progreso);
+                            if (opciones.stats) stats.imprimir(estilo, progreso);
+                        });
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        // ===============================================================
+        // 2️⃣ y 3️⃣ Log del simulador y access log
+        // ===============================================================
+        try {
+            ingerir(progreso);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        reportar();
+        exportarBuckets(progreso);
+        exportarInteracciones(progreso);
+        if (sim.alertas != null && sim.alertas.emitidas > 0) {
+            progreso.printf((estilo == Estilo.PLANO ? "" : "🚨 ") + "%d eventos de alerta%s%n", sim.alertas.emitidas,
+                    opciones.alertas != null ? " en " + opciones.alertas.toAbsolutePath() : "");
+        }
+        if (sim.alertas != null && sim.alertas.perdidas > 0) {
+            System.err.println(estilo.error + sim.alertas.perdidas + " eventos de alerta no se pudieron escribir");
+        }
+        if (opciones.stats) stats.imprimir(estilo, progreso);
+    }
+
+    /** Escribe el reporte a System.out en el formato de --formato. */
+    void reportar() {
+        try {
+            ReportWriter.escribir(sim, config, metricas, estilo, opciones.formato, System.out);
+        } catch (IOException e) {
+            System.err.println("No se pudo escribir el reporte: " + e);
+        }
+    }
+
+    /** Con --rollup, escribe los buckets por room; un error no corta el análisis. */
+    void exportarBuckets(PrintStream progreso) {
+        if (opciones.rollup == null) return;
+        try {
+            RollupExport.write(sim, opciones.rollup);
+            progreso.println((estilo == Estilo.PLANO ? "" : "📁 ") + "Buckets exportados en "
+                    + opciones.rollup.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("No se pudieron exportar los buckets: " + e);
+        }
+    }
+
+    /** Con --join, cruza el access log con el simulador (otra pasada por los dos logs). */
+    void exportarInteracciones(PrintStream progreso) {
+        if (opciones.join == null) return;
+        if (logPaths.size() > 1) {
+            System.err.println(estilo.error + "--join necesita un solo log del simulador");
+            return;
+        }
+        if (!Files.exists(httpPath)) {
+            System.err.println(estilo.error + "--join necesita el access log: " + httpPath.toAbsolutePath());
+            return;
+        }
+        try {
+            InteractionJoin join = new InteractionJoin(config, opciones.joinWindowMs, opciones.simEpochMs,
+                    opciones.dedupWindowMs);
+            join.run(logPath, httpPath, opciones.rotados, opciones.join);
+            progreso.printf((estilo == Estilo.PLANO ? "" : "🔗 ") + "%d interacciones cruzadas (%d con la ventana completa) en %s%n",
+                    join.interacciones, join.completas, opciones.join.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("No se pudieron cruzar las interacciones: " + e.getMessage());
+        }
+    }
+
+    void cargarConfig() throws IOException {
+        config = SimulationConfig.load(configPath, MAPPER);
+        sim = SimAggregator.create(config);
+        sim.restrict(opciones.fromMs, opciones.toMs);
+        // La columna sitePeakKWh de --rollup sale de las mismas transiciones que PICO
+        sim.trackPeak = metricas.contains(Metrica.PICO) || opciones.bucketMs > 0;
+        sim.buckets(opciones.bucketMs);
+        sim.etapa = stats.simulador;
+        sim.alertas = AnomalyDetector.fromConfig(config);
+        if (sim.alertas != null) {
+            if (opciones.alertas != null) sim.alertas.out = AnomalyDetector.salida(opciones.alertas);
+            // Las reglas necesitan el log en orden: en vez de tramos, parseo en paralelo con
+            // --pipeline (sólo en la copia de este pipeline)
+            if (opciones.threads > 1) {
+                if (opciones.pipelineWorkers == 0) opciones.pipelineWorkers = opciones.threads;
+                opciones.threads = 1;
+                System.err.println((estilo == Estilo.PLANO ? "" : "⚠️ ")
+                        + "Con reglas de alerta, --parallel lee el log en orden como --pipeline");
+            }
+        }
+        http = usaHttp() ? new HttpInteractions(opciones.dedupWindowMs) : null;
+        if (http != null) http.etapa = stats.accessLog;
+    }
+
+    /** Log del simulador y, si se usa, access log, sin mensajes de progreso. */
+    void ingerir() throws IOException {
+        ingerir(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /** Igual, con los avisos del estilo sobre el access log en {@code progreso}. */
+    void ingerir(PrintStream progreso) throws IOException {
+        if (opciones.pipelineWorkers > 0) {
+            // Los dos logs a la vez: el aviso va antes, no después del simulador
+            if (http != null) {
+                if (Files.exists(httpPath)) progreso.println(estilo.analizandoHttp);
+                else estilo.sinHttp(progreso);
+            }
+            StagedIngest.ingest(logPaths, httpPath, sim, config, http, opciones);
+            if (sim.alertas != null) sim.alertas.cerrar();
+            return;
+        }
+        if (logPaths.size() > 1) {
+            SimMerge.ingest(logPaths, sim, opciones);
+        } else {
+            SimIngest.ingest(logPath, sim, config, opciones);
+        }
+        if (sim.alertas != null) sim.alertas.cerrar();
+        if (http == null) return;
+        if (Files.exists(httpPath)) {
+            progreso.println(estilo.analizandoHttp);
+            http.ingest(LogInput.open(httpPath, opciones.rotados), sim);
+        } else {
+            estilo.sinHttp(progreso);
+        }
+    }
+
+    void imprimirReporte(PrintStream out) {
+        imprimirReporte(sim, config, metricas, estilo, out);
+    }
+
+    static void imprimirReporte(SimAggregator sim, SimulationConfig config, Set<Metrica> metricas,
+                                Estilo estilo, PrintStream out) {
+        long minSimTime = sim.minSimTime;
+        long maxSimTime = sim.maxSimTime;
+
+        // ===============================================================
+        // 4️⃣ Resumen general
+        // ===============================================================
+        out.printf(estilo.resumen);
+        out.printf(sim.ranged() ? "Total líneas en el rango: %d | JSON válidos: %d%n"
+                : "Total líneas procesadas: %d | JSON válidos: %d%n", sim.lineasProcesadas(), sim.validJson);
+
+        if (minSimTime != Long.MAX_VALUE && maxSimTime != Long.MIN_VALUE) {
+            estilo.duracion((maxSimTime - minSimTime) / 1000.0, out);
+        }
+        for (Metrica m : metricas) m.imprimirGlobal(sim, config, estilo, out);
+        out.println();
+
+        // ===============================================================
+        // 5️⃣ Por room
+        // ===============================================================
+        boolean confort = metricas.contains(Metrica.CONFORT);
+        for (int s = 0; s < sim.rooms.size(); s++) {
+            RoomStats st = sim.rooms.at(s);
+            long total = st.samples;
+            if (total == 0) continue;
+
+            out.printf("Room %d:%n", sim.rooms.id(s));
+            for (Metrica m : metricas) m.imprimirEncabezado(st, estilo, out);
+            out.printf(estilo.temperatura, st.minTemp, st.maxTemp);
+            if (confort) Metrica.CONFORT.imprimirRoom(st, estilo, out);
+            out.printf(estilo.item + "Heater encendido: %.1f%%%n", st.heaterOnCount * 100.0 / total);
+            estilo.energia(st, out);
+            for (Metrica m : ORDEN_ROOM) {
+                if (metricas.contains(m)) m.imprimirRoom(st, estilo, out);
+            }
+            out.println();
+        }
+    }
+}
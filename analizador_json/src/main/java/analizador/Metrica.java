@@ -0,0 +1,194 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Métricas que se pueden pedir en el reporte. Todas salen de la misma pasada
+ * por los logs ({@link MetricPipeline}); cada una declara qué entradas necesita
+ * y qué líneas agrega al reporte global y al de cada room, en el
+ * {@link Estilo} del analizador que la pidió.
+ */
+enum Metrica {
+
+    /** Ticks y consumo en tarifa baja y alta (el reporte de Analizador). */
+    TARIFA("tarifa") {
+        @Override
+        void imprimirRoom(RoomStats st, Estilo estilo, PrintStream out) {
+            long tariffTicks = st.lowTicks + st.highTicks;
+            String i = estilo.item;
+            out.printf(
+                    i + "Tarifa baja: %.1f%% (%d ticks)%n" +
+                    i + "Tarifa alta: %.1f%% (%d ticks)%n" +
+                    i + "Consumo baja: %.3f kWh%n" +
+                    i + "Consumo alta: %.3f kWh%n",
+                    tariffTicks > 0 ? (st.lowTicks * 100.0 / tariffTicks) : 0, st.lowTicks,
+                    tariffTicks > 0 ? (st.highTicks * 100.0 / tariffTicks) : 0, st.highTicks,
+                    st.lastLowKWh, st.lastHighKWh);
+        }
+
+        @Override
+        void jsonRoom(RoomStats st, ObjectNode out) {
+            out.put("lowTicks", st.lowTicks);
+            out.put("highTicks", st.highTicks);
+            out.put("lowKWh", st.lastLowKWh);
+            out.put("highKWh", st.lastHighKWh);
+        }
+    },
+
+    /** Banda de confort, media y percentiles de temperatura (el de AnalizadorParametrizado). */
+    CONFORT("confort") {
+        @Override
+        void imprimirEncabezado(RoomStats st, Estilo estilo, PrintStream out) {
+            out.printf(estilo.item + "Esperada: %.1f°C%n", st.expectedTemp);
+        }
+
+        @Override
+        void imprimirRoom(RoomStats st, Estilo estilo, PrintStream out) {
+            long total = st.samples;
+            out.printf(
+                    estilo.item + "Temperatura media: %.2f°C (σ=%.2f) | p5=%.2f p50=%.2f p95=%.2f%n" +
+                    estilo.item + "Dentro del rango esperado: %.1f%% | Debajo: %.1f%% | Encima: %.1f%%%n",
+                    st.meanTemp, Math.sqrt(st.varianceTemp()),
+                    st.percentileTemp(0.05), st.percentileTemp(0.50), st.percentileTemp(0.95),
+                    st.withinRange * 100.0 / total, st.belowRange * 100.0 / total, st.aboveRange * 100.0 / total);
+        }
+
+        @Override
+        void jsonRoom(RoomStats st, ObjectNode out) {
+            long total = st.samples;
+            out.put("expectedTemp", st.expectedTemp);
+            out.put("meanTemp", st.meanTemp);
+            out.put("stdTemp", Math.sqrt(st.varianceTemp()));
+            out.put("p5", st.percentileTemp(0.05));
+            out.put("p50", st.percentileTemp(0.50));
+            out.put("p95", st.percentileTemp(0.95));
+            out.put("withinPct", st.withinRange * 100.0 / total);
+            out.put("belowPct", st.belowRange * 100.0 / total);
+            out.put("abovePct", st.aboveRange * 100.0 / total);
+        }
+    },
+
+    /** Pico de consumo simultáneo y curva de duración de carga. */
+    PICO("pico") {
+        @Override
+        void imprimirGlobal(SimAggregator sim, SimulationConfig config, Estilo estilo, PrintStream out) {
+            PeakLoadEngine.Result peak = sim.peakLoad();
+            double peakKWh = peak.peakKWh;
+            if (estilo == Estilo.PLANO) {
+                out.printf("Pico máximo de consumo: %.2f kWh%n", peakKWh);
+                return;
+            }
+            double maxEnergyKWh = config.maxEnergyKWh;
+            out.printf("🔺 Pico máximo de consumo: %.2f kWh (%.2f / %.2f → %.1f%% del total)%n",
+                    peakKWh, peakKWh, maxEnergyKWh,
+                    (maxEnergyKWh > 0 ? (peakKWh / maxEnergyKWh * 100.0) : 0));
+            if (peak.peakTimeMs != Long.MIN_VALUE) {
+                out.printf("   Momento del pico: simTimeMs=%d | Carga superada el 1%% del tiempo: %.2f kWh" +
+                                " | 10%%: %.2f kWh | 50%%: %.2f kWh%n",
+                        peak.peakTimeMs, peak.loadAtFraction(0.01), peak.loadAtFraction(0.10),
+                        peak.loadAtFraction(0.50));
+                if (maxEnergyKWh > 0) {
+                    out.printf("   Tiempo por encima de la energía máxima: %.1f%%%n",
+                            peak.fractionAbove(maxEnergyKWh) * 100.0);
+                }
+            }
+        }
+
+        @Override
+        void jsonGlobal(SimAggregator sim, SimulationConfig config, PeakLoadEngine.Result peak, ObjectNode out) {
+            ObjectNode pico = out.putObject("pico");
+            pico.put("peakKWh", peak.peakKWh);
+            pico.put("maxEnergyKWh", config.maxEnergyKWh);
+            pico.put("peakPct", config.maxEnergyKWh > 0 ? peak.peakKWh / config.maxEnergyKWh * 100.0 : 0);
+            if (peak.peakTimeMs != Long.MIN_VALUE) {
+                pico.put("peakTimeMs", peak.peakTimeMs);
+                pico.put("load1PctKWh", peak.loadAtFraction(0.01));
+                pico.put("load10PctKWh", peak.loadAtFraction(0.10));
+                pico.put("load50PctKWh", peak.loadAtFraction(0.50));
+                if (config.maxEnergyKWh > 0) pico.put("abovePct", peak.fractionAbove(config.maxEnergyKWh) * 100.0);
+            }
+        }
+    },
+
+    /** POST /switch/{id} del access log; es la única que lo lee. */
+    INTERACCIONES("interacciones") {
+        @Override
+        boolean usaHttp() {
+            return true;
+        }
+
+        @Override
+        void imprimirRoom(RoomStats st, Estilo estilo, PrintStream out) {
+            out.printf(estilo == Estilo.PLANO ? "  Interacciones usuario: %d%n"
+                    : "  - Interacciones de usuario (POST): %d%n", st.userInteractions);
+        }
+
+        @Override
+        void jsonRoom(RoomStats st, ObjectNode out) {
+            out.put("userInteractions", st.userInteractions);
+        }
+    };
+
+    /** Lo que calcula Analizador si no se pasa --metricas. */
+    static final Set<Metrica> ANALIZADOR = EnumSet.of(TARIFA, PICO, INTERACCIONES);
+    /** Lo que calcula AnalizadorParametrizado si no se pasa --metricas. */
+    static final Set<Metrica> PARAMETRIZADO = EnumSet.of(CONFORT, PICO, INTERACCIONES);
+
+    final String nombre;
+
+    Metrica(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /** true si necesita el access log; si ninguna lo pide, no se lee. */
+    boolean usaHttp() {
+        return false;
+    }
+
+    /** Líneas del resumen general, después de la duración simulada. */
+    void imprimirGlobal(SimAggregator sim, SimulationConfig config, Estilo estilo, PrintStream out) { }
+
+    /** Líneas del bloque de un room antes de las temperaturas medidas. */
+    void imprimirEncabezado(RoomStats st, Estilo estilo, PrintStream out) { }
+
+    /** Líneas del bloque de un room con al menos una muestra. */
+    void imprimirRoom(RoomStats st, Estilo estilo, PrintStream out) { }
+
+    /**
+     * Lo mismo que {@link #imprimirGlobal}, como campos JSON del resumen.
+     * {@code peak} es null si no se pidió {@link #PICO}.
+     */
+    void jsonGlobal(SimAggregator sim, SimulationConfig config, PeakLoadEngine.Result peak, ObjectNode out) { }
+
+    /** Lo mismo que {@link #imprimirRoom}, como campos JSON del room. */
+    void jsonRoom(RoomStats st, ObjectNode out) { }
+
+    /** "tarifa,pico", o "todas". */
+    static Set<Metrica> parse(String text) {
+        Set<Metrica> out = EnumSet.noneOf(Metrica.class);
+        for (String part : text.split(",")) {
+            String name = part.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) continue;
+            if (name.equals("todas")) return EnumSet.allOf(Metrica.class);
+            Metrica found = null;
+            for (Metrica m : values()) {
+                if (m.nombre.equals(name)) found = m;
+            }
+            if (found == null) throw new IllegalArgumentException("Métrica desconocida: " + part.trim());
+            out.add(found);
+        }
+        if (out.isEmpty()) throw new IllegalArgumentException("--metricas no puede estar vacío");
+        return out;
+    }
+
+    static int mask(Set<Metrica> metricas) {
+        int mask = 0;
+        for (Metrica m : metricas) mask |= 1 << m.ordinal();
+        return mask;
+    }
+}
@@ -0,0 +1,197 @@
+package analizador;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+/**
+ * Opciones de línea de comando que van después de los paths posicionales.
+ */
+final class Opciones implements Cloneable {
+
+    static final String AYUDA = String.join(System.lineSeparator(),
+            "Opciones:",
+            "  --parallel[=N]       lee el log del simulador con N hilos (por defecto, todos los núcleos)",
+            "  --pipeline[=N]       lee el log del simulador y el access log a la vez, con N workers de parseo",
+            "                       compartidos (por defecto, todos los núcleos)",
+            "  --follow             sigue los logs mientras crecen y reimprime el reporte",
+            "  --interval=DUR       cada cuánto refrescar en --follow (ej. 500ms, 10s, 5m; por defecto 10s)",
+            "  --checkpoint=PATH    guarda/restaura offsets y estado para retomar --follow",
+            "  --rotados            lee también los rotados <log>.N[.gz|.zst], del más viejo al log actual",
+            "                       (los logs gzip/zstd se detectan solos y se descomprimen al vuelo)",
+            "  --cache              guarda los registros parseados en <log>.cols y la reutiliza mientras el log no cambie",
+            "  --from=T / --to=T    analiza sólo simTimeMs en [T_from, T_to) (ms, o con unidad: 90s, 30m, 6h);",
+            "                       arma <log>.idx en la primera lectura para saltar directo a ese rango;",
+            "                       el reporte cuenta sólo las líneas con simTimeMs dentro del rango",
+            "  --metricas=LISTA     qué calcular, en una sola pasada: tarifa, confort, pico, interacciones",
+            "                       o todas (por defecto, las del reporte de cada analizador)",
+            "  --dedup-window=DUR   recuerda los POST /switch/ sólo durante DUR de @timestamp (ej. 10m)",
+            "                       para acotar la memoria en access logs enormes; por defecto, todos.",
+            "                       Un request se identifica por room e instante: \"/switch/012\" y \"/switch/12\",",
+            "                       o \"...:00Z\" y \"...:00.000+00:00\", son el mismo",
+            "  --buckets=DUR        agrega además cada room por intervalos de simTimeMs (ej. 1m, 15m, 1h):",
+            "                       consumo, ticks de tarifa, bandas de confort y pico del sitio por intervalo",
+            "  --rollup=PATH        exporta esos intervalos: CSV si PATH termina en .csv, si no una carpeta",
+            "                       con un archivo binario por columna y schema.csv (--buckets por defecto: 15m)",
+            "  --join=PATH          cruza cada POST /switch/{id} con el simulador y escribe un CSV con el estado",
+            "                       del room y la carga del sitio antes y al final de la ventana",
+            "  --join-window=DUR    ventana de respuesta de --join (por defecto, 5m)",
+            "  --sim-epoch=T        instante ISO-8601 de simTimeMs = 0 para ubicar los @timestamp (por defecto,",
+            "                       la fecha de la primera línea del simulador, como UTC)",
+            "  --alertas=PATH       agrega los eventos de las reglas \"alertas\" de la configuración a PATH, uno",
+            "                       JSON por línea (por defecto, a stderr apenas se cumplen)",
+            "  --formato=F          reporte en texto (por defecto), json o csv (un room por fila); con json",
+            "                       o csv los mensajes de progreso van a stderr",
+            "  --stats              imprime tiempos, líneas/s, MB/s, descartes por motivo y asignación por",
+            "                       registro de cada log (siempre disponibles por JMX en analizador:type=Ingesta)");
+
+    static final long DEFAULT_BUCKET_MS = 15 * 60_000;
+
+    int threads = 1;
+    /** Workers de parseo de --pipeline; 0 sin pipeline. */
+    int pipelineWorkers = 0;
+    boolean follow = false;
+    long intervalMs = 10_000;
+    Path checkpoint = null;
+    boolean cache = false;
+    boolean rotados = false;
+    long fromMs = Long.MIN_VALUE;
+    long toMs = Long.MAX_VALUE;
+    long dedupWindowMs = 0;
+    boolean stats = false;
+    /** Tamaño de los buckets por room; 0 sin buckets. */
+    long bucketMs = 0;
+    /** Adónde exportar los buckets; null para no exportarlos. */
+    Path rollup = null;
+    /** Adónde escribir el cruce de interacciones; null sin --join. */
+    Path join = null;
+    long joinWindowMs = 0;
+    /** Epoch ms de simTimeMs = 0; NO_EPOCH para tomarlo del log del simulador. */
+    long simEpochMs = SwitchDedup.NO_EPOCH;
+    /** Archivo de eventos de alerta; null para stderr. */
+    Path alertas = null;
+    ReportWriter.Formato formato = ReportWriter.Formato.TEXTO;
+    /** null: las métricas por defecto del analizador. */
+    Set<Metrica> metricas = null;
+
+    static Opciones parse(String[] args, int from) {
+        Opciones o = new Opciones();
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--parallel")) {
+                o.threads = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--parallel=")) {
+                o.threads = Math.max(1, Integer.parseInt(value(arg)));
+            } else if (arg.equals("--pipeline")) {
+                o.pipelineWorkers = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--pipeline=")) {
+                o.pipelineWorkers = Math.max(1, Integer.parseInt(value(arg)));
+            } else if (arg.equals("--follow")) {
+                o.follow = true;
+            } else if (arg.startsWith("--interval=")) {
+                o.intervalMs = parseDurationMs(value(arg));
+                if (o.intervalMs <= 0) throw new IllegalArgumentException("--interval tiene que ser positivo");
+            } else if (arg.startsWith("--checkpoint=")) {
+                o.checkpoint = Paths.get(value(arg));
+            } else if (arg.equals("--rotados")) {
+                o.rotados = true;
+            } else if (arg.startsWith("--buckets=")) {
+                o.bucketMs = parseDurationMs(value(arg));
+                if (o.bucketMs <= 0) throw new IllegalArgumentException("--buckets tiene que ser positivo");
+            } else if (arg.startsWith("--rollup=")) {
+                o.rollup = Paths.get(value(arg));
+            } else if (arg.startsWith("--join=")) {
+                o.join = Paths.get(value(arg));
+            } else if (arg.startsWith("--join-window=")) {
+                o.joinWindowMs = parseDurationMs(value(arg));
+                if (o.joinWindowMs <= 0) throw new IllegalArgumentException("--join-window tiene que ser positivo");
+            } else if (arg.startsWith("--sim-epoch=")) {
+                o.simEpochMs = SwitchDedup.epochMillis(value(arg));
+                if (o.simEpochMs == SwitchDedup.NO_EPOCH) {
+                    throw new IllegalArgumentException("--sim-epoch tiene que ser ISO-8601 con zona: " + value(arg));
+                }
+            } else if (arg.startsWith("--alertas=")) {
+                o.alertas = Paths.get(value(arg));
+            } else if (arg.startsWith("--formato=")) {
+                o.formato = ReportWriter.Formato.parse(value(arg));
+            } else if (arg.equals("--stats")) {
+                o.stats = true;
+            } else if (arg.equals("--cache")) {
+                o.cache = true;
+            } else if (arg.startsWith("--from=")) {
+                o.fromMs = parseSimTimeMs(value(arg));
+            } else if (arg.startsWith("--to=")) {
+                o.toMs = parseSimTimeMs(value(arg));
+            } else if (arg.startsWith("--metricas=")) {
+                o.metricas = Metrica.parse(value(arg));
+            } else if (arg.startsWith("--dedup-window=")) {
+                o.dedupWindowMs = parseDurationMs(value(arg));
+                if (o.dedupWindowMs <= 0) throw new IllegalArgumentException("--dedup-window tiene que ser positivo");
+            } else {
+                throw new IllegalArgumentException("Opción desconocida: " + arg);
+            }
+        }
+        if (o.rollup != null && o.bucketMs == 0) o.bucketMs = DEFAULT_BUCKET_MS;
+        if (o.bucketMs > 0 && o.rollup == null) {
+            throw new IllegalArgumentException("--buckets necesita --rollup=PATH para exportarlos");
+        }
+        if (o.join == null && (o.joinWindowMs > 0 || o.simEpochMs != SwitchDedup.NO_EPOCH)) {
+            throw new IllegalArgumentException("--join-window y --sim-epoch necesitan --join=PATH");
+        }
+        if (o.join != null && o.follow) {
+            throw new IllegalArgumentException("--join recorre los logs completos: no se combina con --follow");
+        }
+        if (o.join != null && o.joinWindowMs == 0) o.joinWindowMs = InteractionJoin.DEFAULT_WINDOW_MS;
+        if (o.fromMs >= o.toMs) {
+            throw new IllegalArgumentException("Rango vacío: --from tiene que ser menor que --to");
+        }
+        return o;
+    }
+
+    /**
+     * Copia para un solo pipeline. Lo que una corrida ajusta para sí, como el
+     * modo de ingesta, no cambia las opciones que comparten las demás.
+     */
+    Opciones copia() {
+        try {
+            return (Opciones) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    boolean ranged() {
+        return fromMs != Long.MIN_VALUE || toMs != Long.MAX_VALUE;
+    }
+
+    /** simTimeMs: un número solo son milisegundos; con unidad, como {@link #parseDurationMs}. */
+    static long parseSimTimeMs(String text) {
+        String t = text.trim();
+        if (!t.isEmpty() && Character.isDigit(t.charAt(t.length() - 1))) {
+            try {
+                return Long.parseLong(t);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("simTimeMs inválido: " + text);
+            }
+        }
+        return parseDurationMs(t);
+    }
+
+    /** "250ms", "10s", "5m", "1h"; sin unidad se toma como segundos. */
+    static long parseDurationMs(String text) {
+        String t = text.trim().toLowerCase();
+        try {
+            if (t.endsWith("ms")) return Long.parseLong(t.substring(0, t.length() - 2).trim());
+            if (t.endsWith("s")) return Math.round(Double.parseDouble(t.substring(0, t.length() - 1)) * 1000);
+            if (t.endsWith("m")) return Math.round(Double.parseDouble(t.substring(0, t.length() - 1)) * 60_000);
+            if (t.endsWith("h")) return Math.round(Double.parseDouble(t.substring(0, t.length() - 1)) * 3_600_000);
+            return Math.round(Double.parseDouble(t) * 1000);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Duración inválida: " + text);
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,323 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Motor de pico de consumo simultáneo por barrido.
+ *
+ * En vez de guardar qué rooms estaban encendidos en cada instante, se registran
+ * sólo las transiciones del heater como eventos primitivos (simTimeMs, ±kWh del
+ * room). Un único barrido sobre los eventos ordenados por tiempo da la carga del
+ * sitio en cada tramo, el pico, el instante del pico y la curva de duración de
+ * carga. La memoria crece con los cambios de estado, no con ticks × rooms.
+ */
+final class PeakLoadEngine {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private long[] times = new long[256];
+    private double[] deltas = new double[256];
+    private int size;
+    private boolean sorted = true;
+
+    /** Registra un cambio de carga de {@code deltaKWh} en {@code simTimeMs}. */
+    void add(long simTimeMs, double deltaKWh) {
+        if (deltaKWh == 0) return;
+        if (size == times.length) grow(size + 1);
+        if (size > 0 && simTimeMs < times[size - 1]) sorted = false;
+        times[size] = simTimeMs;
+        deltas[size] = deltaKWh;
+        size++;
+    }
+
+    /** Agrega todos los eventos de {@code other}. */
+    void addAll(PeakLoadEngine other) {
+        if (other.size == 0) return;
+        grow(size + other.size);
+        if (!other.sorted || (size > 0 && other.times[0] < times[size - 1])) sorted = false;
+        System.arraycopy(other.times, 0, times, size, other.size);
+        System.arraycopy(other.deltas, 0, deltas, size, other.size);
+        size += other.size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(times[i]);
+            out.writeDouble(deltas[i]);
+        }
+    }
+
+    void read(DataInput in) throws IOException {
+        size = 0;
+        sorted = true;
+        int n = in.readInt();
+        grow(n);
+        for (int i = 0; i < n; i++) add(in.readLong(), in.readDouble());
+    }
+
+    /**
+     * Barre los eventos entre {@code fromMs} y {@code toMs} (exclusivo).
+     * {@code closing} trae eventos extra que no forman parte del registro (por
+     * ejemplo, el apagado implícito de los rooms que siguen encendidos al final
+     * del log).
+     */
+    Result sweep(long fromMs, long toMs, PeakLoadEngine closing) {
+        sort();
+        closing.sort();
+        long[] closingTimes = closing.times;
+        double[] closingDeltas = closing.deltas;
+        int closingCount = closing.size;
+
+        Segments segs = new Segments();
+        double load = 0;
+        double peak = 0;
+        long peakTime = Long.MIN_VALUE;
+        long cursor = fromMs;
+
+        int i = 0, j = 0;
+        while (i < size || j < closingCount) {
+            long t = (j >= closingCount || (i < size && times[i] <= closingTimes[j]))
+                    ? times[i] : closingTimes[j];
+
+            // Tramo [cursor, t) con la carga vigente
+            if (t > cursor) {
+                if (cursor < toMs) segs.add(load, Math.min(t, toMs) - cursor);
+                cursor = t;
+            }
+
+            // Se aplican todos los eventos del mismo instante antes de medir
+            while (i < size && times[i] == t) load += deltas[i++];
+            while (j < closingCount && closingTimes[j] == t) load += closingDeltas[j++];
+
+            // La tolerancia evita que el redondeo de las sumas mueva el pico a un
+            // instante posterior con la misma carga.
+            if (load > peak + 1e-9) {
+                peak = load;
+                peakTime = t;
+            }
+        }
+        if (toMs > cursor) segs.add(load, toMs - cursor);
+
+        return new Result(peak, peakTime, segs);
+    }
+
+    /**
+     * Carga máxima dentro de cada bucket de {@code bucketMs}, para {@code count}
+     * buckets desde el número {@code first}, con el mismo barrido que
+     * {@link #sweep}. Un bucket sin tiempo simulado queda en 0.
+     */
+    double[] maxByBucket(long fromMs, long toMs, PeakLoadEngine closing, long bucketMs, long first, int count) {
+        sort();
+        closing.sort();
+        double[] out = new double[count];
+        long[] closingTimes = closing.times;
+        double[] closingDeltas = closing.deltas;
+        int closingCount = closing.size;
+
+        double load = 0;
+        long cursor = fromMs;
+        int i = 0, j = 0;
+        while (i < size || j < closingCount) {
+            long t = (j >= closingCount || (i < size && times[i] <= closingTimes[j]))
+                    ? times[i] : closingTimes[j];
+            if (t > cursor) {
+                maxOver(out, load, cursor, Math.min(t, toMs), bucketMs, first);
+                cursor = t;
+            }
+            while (i < size && times[i] == t) load += deltas[i++];
+            while (j < closingCount && closingTimes[j] == t) load += closingDeltas[j++];
+        }
+        if (toMs > cursor) maxOver(out, load, cursor, toMs, bucketMs, first);
+        return out;
+    }
+
+    /** Aplica {@code load} a los buckets que toca el tramo [from, to). */
+    private static void maxOver(double[] out, double load, long from, long to, long bucketMs, long first) {
+        if (to <= from) return;
+        long a = Math.max(Math.floorDiv(from, bucketMs) - first, 0);
+        long b = Math.min(Math.floorDiv(to - 1, bucketMs) - first, out.length - 1L);
+        for (long k = a; k <= b; k++) {
+            if (load > out[(int) k]) out[(int) k] = load;
+        }
+    }
+
+    // ===============================================================
+    // Resultado
+    // ===============================================================
+    static final class Result {
+        final double peakKWh;
+        /** simTimeMs en el que se alcanza el pico, o Long.MIN_VALUE si nunca hubo carga. */
+        final long peakTimeMs;
+
+        // Curva de duración de carga: cargas de mayor a menor y duración acumulada
+        private final double[] curveLoads;
+        private final long[] curveCumulativeMs;
+
+        private Result(double peakKWh, long peakTimeMs, Segments segs) {
+            this.peakKWh = peakKWh;
+            this.peakTimeMs = peakTimeMs;
+
+            sortByLoadDesc(segs.loads, segs.durations, 0, segs.size - 1);
+            this.curveLoads = Arrays.copyOf(segs.loads, segs.size);
+            this.curveCumulativeMs = new long[segs.size];
+            long acc = 0;
+            for (int k = 0; k < segs.size; k++) {
+                acc += segs.durations[k];
+                curveCumulativeMs[k] = acc;
+            }
+        }
+
+        long totalDurationMs() {
+            return curveCumulativeMs.length == 0 ? 0 : curveCumulativeMs[curveCumulativeMs.length - 1];
+        }
+
+        /**
+         * Carga que se alcanza o supera durante la fracción {@code f} del tiempo:
+         * loadAtFraction(0.01) es la carga del 1% de tiempo más cargado.
+         */
+        double loadAtFraction(double f) {
+            long total = totalDurationMs();
+            if (total == 0) return 0;
+            double target = f * total;
+            for (int k = 0; k < curveLoads.length; k++) {
+                if (curveCumulativeMs[k] >= target) return curveLoads[k];
+            }
+            return curveLoads[curveLoads.length - 1];
+        }
+
+        /** Fracción del tiempo con carga mayor que {@code kWh}. */
+        double fractionAbove(double kWh) {
+            long total = totalDurationMs();
+            if (total == 0) return 0;
+            long above = 0;
+            for (int k = 0; k < curveLoads.length && curveLoads[k] > kWh; k++) {
+                above = curveCumulativeMs[k];
+            }
+            return (double) above / total;
+        }
+    }
+
+    /** Tramos (carga, duración) en arreglos primitivos. */
+    private static final class Segments {
+        double[] loads = new double[64];
+        long[] durations = new long[64];
+        int size;
+
+        void add(double load, long durationMs) {
+            if (size == loads.length) {
+                loads = Arrays.copyOf(loads, size * 2);
+                durations = Arrays.copyOf(durations, size * 2);
+            }
+            loads[size] = load;
+            durations[size] = durationMs;
+            size++;
+        }
+    }
+
+    // ===============================================================
+    // Helpers
+    // ===============================================================
+    private void grow(int min) {
+        if (min <= times.length) return;
+        int cap = Math.max(min, times.length * 2);
+        times = Arrays.copyOf(times, cap);
+        deltas = Arrays.copyOf(deltas, cap);
+    }
+
+    /** Ordena por tiempo los arreglos paralelos; los logs suelen venir ya ordenados. */
+    private void sort() {
+        if (sorted) return;
+        sortByTime(0, size - 1);
+        sorted = true;
+    }
+
+    private void sortByTime(int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < INSERTION_SORT_THRESHOLD) {
+                for (int a = lo + 1; a <= hi; a++) {
+                    long t = times[a];
+                    double d = deltas[a];
+                    int b = a - 1;
+                    while (b >= lo && times[b] > t) {
+                        times[b + 1] = times[b];
+                        deltas[b + 1] = deltas[b];
+                        b--;
+                    }
+                    times[b + 1] = t;
+                    deltas[b + 1] = d;
+                }
+                return;
+            }
+            long pivot = times[(lo + hi) >>> 1];
+            int a = lo, b = hi;
+            while (a <= b) {
+                while (times[a] < pivot) a++;
+                while (times[b] > pivot) b--;
+                if (a <= b) {
+                    swap(a, b);
+                    a++;
+                    b--;
+                }
+            }
+            if (b - lo < hi - a) {
+                sortByTime(lo, b);
+                lo = a;
+            } else {
+                sortByTime(a, hi);
+                hi = b;
+            }
+        }
+    }
+
+    private static void sortByLoadDesc(double[] loads, long[] durations, int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < INSERTION_SORT_THRESHOLD) {
+                for (int a = lo + 1; a <= hi; a++) {
+                    double l = loads[a];
+                    long d = durations[a];
+                    int b = a - 1;
+                    while (b >= lo && loads[b] < l) {
+                        loads[b + 1] = loads[b];
+                        durations[b + 1] = durations[b];
+                        b--;
+                    }
+                    loads[b + 1] = l;
+                    durations[b + 1] = d;
+                }
+                return;
+            }
+            double pivot = loads[(lo + hi) >>> 1];
+            int a = lo, b = hi;
+            while (a <= b) {
+                while (loads[a] > pivot) a++;
+                while (loads[b] < pivot) b--;
+                if (a <= b) {
+                    double l = loads[a]; loads[a] = loads[b]; loads[b] = l;
+                    long d = durations[a]; durations[a] = durations[b]; durations[b] = d;
+                    a++;
+                    b--;
+                }
+            }
+            if (b - lo < hi - a) {
+                sortByLoadDesc(loads, durations, lo, b);
+                lo = a;
+            } else {
+                sortByLoadDesc(loads, durations, a, hi);
+                hi = b;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long t = times[a]; times[a] = times[b]; times[b] = t;
+        double d = deltas[a]; deltas[a] = deltas[b]; deltas[b] = d;
+    }
+}
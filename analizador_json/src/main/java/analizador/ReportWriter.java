@@ -0,0 +1,158 @@
+package analizador;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Escribe el reporte final en el formato de --formato, de a un room por vez y
+ * por un buffer propio, así con decenas de miles de rooms no hay un flush ni
+ * un árbol JSON por cada uno.
+ *
+ * <ul>
+ *   <li>texto: el reporte de siempre ({@link MetricPipeline#imprimirReporte}).</li>
+ *   <li>json: {@code {"resumen":{...},"rooms":[{...},...]}} con un
+ *       {@link JsonGenerator}; los campos son los mismos que sirve
+ *       {@link AnalizadorDaemon}.</li>
+ *   <li>csv: una fila por room con los campos de json, con el encabezado
+ *       tomado del primer room.</li>
+ * </ul>
+ */
+final class ReportWriter {
+
+    enum Formato {
+        TEXTO, JSON, CSV;
+
+        static Formato parse(String value) {
+            for (Formato f : values()) {
+                if (f.name().equalsIgnoreCase(value)) return f;
+            }
+            throw new IllegalArgumentException("Formato desconocido: " + value + " (texto, json o csv)");
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BUFFER = 1 << 16;
+
+    private ReportWriter() { }
+
+    /** Escribe el reporte en {@code out} y lo vacía, sin cerrarlo. */
+    static void escribir(SimAggregator sim, SimulationConfig config, Set<Metrica> metricas, Estilo estilo,
+                         Formato formato, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER);
+        switch (formato) {
+            case TEXTO: {
+                PrintStream ps = new PrintStream(buffered, false);
+                MetricPipeline.imprimirReporte(sim, config, metricas, estilo, ps);
+                ps.flush();
+                if (ps.checkError()) throw new IOException("No se pudo escribir el reporte");
+                break;
+            }
+            case JSON:
+                json(sim, config, metricas, buffered);
+                break;
+            case CSV:
+                csv(sim, metricas, buffered);
+                break;
+        }
+        buffered.flush();
+    }
+
+    // ===============================================================
+    // Campos JSON (compartidos con el daemon)
+    // ===============================================================
+
+    /** Totales, rango simulado y métricas globales; {@code peak} null si no se pidió PICO. */
+    static void resumen(SimAggregator sim, SimulationConfig config, Set<Metrica> metricas,
+                        PeakLoadEngine.Result peak, ObjectNode out) {
+        out.put("totalLines", sim.totalLines);
+        out.put("validJson", sim.validJson);
+        if (sim.minSimTime != Long.MAX_VALUE) {
+            out.put("minSimTimeMs", sim.minSimTime);
+            out.put("maxSimTimeMs", sim.maxSimTime);
+            out.put("durationSec", (sim.maxSimTime - sim.minSimTime) / 1000.0);
+        }
+        out.put("maxEnergyKWh", config.maxEnergyKWh);
+        for (Metrica m : metricas) m.jsonGlobal(sim, config, peak, out);
+    }
+
+    static void room(int roomId, RoomStats st, Set<Metrica> metricas, ObjectNode out) {
+        out.put("roomId", roomId);
+        out.put("samples", st.samples);
+        out.put("minTemp", st.minTemp);
+        out.put("maxTemp", st.maxTemp);
+        out.put("heaterOnPct", st.heaterOnCount * 100.0 / st.samples);
+        out.put("energyKWh", st.lastEnergyWh / 1000.0);
+        for (Metrica m : metricas) m.jsonRoom(st, out);
+    }
+
+    // ===============================================================
+    // Formatos
+    // ===============================================================
+
+    private static void json(SimAggregator sim, SimulationConfig config, Set<Metrica> metricas,
+                             OutputStream out) throws IOException {
+        try (JsonGenerator gen = MAPPER.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            gen.writeStartObject();
+            gen.writeFieldName("resumen");
+            ObjectNode resumen = MAPPER.createObjectNode();
+            resumen(sim, config, metricas, metricas.contains(Metrica.PICO) ? sim.peakLoad() : null, resumen);
+            MAPPER.writeTree(gen, resumen);
+
+            gen.writeArrayFieldStart("rooms");
+            // Un solo nodo que se vacía y se vuelve a llenar: la memoria no crece con los rooms
+            ObjectNode node = MAPPER.createObjectNode();
+            for (int s = 0; s < sim.rooms.size(); s++) {
+                if (sim.rooms.at(s).samples == 0) continue;
+                node.removeAll();
+                room(sim.rooms.id(s), sim.rooms.at(s), metricas, node);
+                MAPPER.writeTree(gen, node);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        out.write('\n');
+    }
+
+    private static void csv(SimAggregator sim, Set<Metrica> metricas, OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        ObjectNode node = MAPPER.createObjectNode();
+        List<String> header = null;
+        StringBuilder line = new StringBuilder(256);
+        for (int s = 0; s < sim.rooms.size(); s++) {
+            if (sim.rooms.at(s).samples == 0) continue;
+            node.removeAll();
+            room(sim.rooms.id(s), sim.rooms.at(s), metricas, node);
+            if (header == null) {
+                header = new ArrayList<>();
+                node.fieldNames().forEachRemaining(header::add);
+                w.write(String.join(",", header));
+                w.write('\n');
+            }
+            line.setLength(0);
+            for (Iterator<String> it = header.iterator(); it.hasNext(); ) {
+                JsonNode v = node.get(it.next());
+                if (v != null && !v.isNull()) line.append(v.asText());
+                if (it.hasNext()) line.append(',');
+            }
+            line.append('\n');
+            w.append(line);
+        }
+        if (header == null) w.write("roomId,samples,minTemp,maxTemp,heaterOnPct,energyKWh\n");
+        w.flush();
+    }
+}
@@ -0,0 +1,195 @@
+package analizador;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exporta los buckets por room (--buckets) para que otras herramientas no
+ * tengan que volver al log: una fila por bucket y room con muestras, ordenadas
+ * por tiempo y después por room.
+ *
+ * Con un path terminado en ".csv" se escribe un CSV; con cualquier otro, una
+ * carpeta columnar con un archivo por columna ({@code <columna>.bin}, valores
+ * little-endian sin encabezado, legibles con numpy.fromfile) y
+ * {@code schema.csv} con el nombre, el tipo y la cantidad de filas.
+ */
+final class RollupExport {
+
+    /** Columnas en orden; cada una es long[], int[] o double[] de {@link #rows} elementos. */
+    private final List<String> names = new ArrayList<>();
+    private final List<Object> columns = new ArrayList<>();
+    private int rows;
+
+    private RollupExport() { }
+
+    static void write(SimAggregator sim, Path out) throws IOException {
+        RollupExport table = build(sim);
+        if (out.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            table.writeCsv(out);
+        } else {
+            table.writeColumns(out);
+        }
+    }
+
+    private static RollupExport build(SimAggregator sim) {
+        Map<Integer, RoomBuckets> rooms = new TreeMap<>();
+        long first = Long.MAX_VALUE, end = Long.MIN_VALUE;
+        int rows = 0;
+        for (int s = 0; s < sim.rooms.size(); s++) {
+            RoomBuckets b = sim.rooms.at(s).buckets;
+            if (b == null || b.size() == 0) continue;
+            rooms.put(sim.rooms.id(s), b);
+            first = Math.min(first, b.first());
+            end = Math.max(end, b.first() + b.size());
+            for (int k = 0; k < b.size(); k++) {
+                if (b.samples(k) > 0) rows++;
+            }
+        }
+
+        long[] start = new long[rows];
+        int[] roomId = new int[rows];
+        int[] samples = new int[rows];
+        double[] heaterOnPct = new double[rows];
+        double[] meanTemp = new double[rows];
+        double[] minTemp = new double[rows];
+        double[] maxTemp = new double[rows];
+        double[] withinPct = new double[rows];
+        double[] belowPct = new double[rows];
+        double[] abovePct = new double[rows];
+        double[] energyWh = new double[rows];
+        double[] lowKWh = new double[rows];
+        double[] highKWh = new double[rows];
+        int[] lowTicks = new int[rows];
+        int[] highTicks = new int[rows];
+        double[] sitePeakKWh = new double[rows];
+
+        if (rows > 0) {
+            int span = (int) (end - first);
+            double[] peak = sim.peakByBucket(first, span);
+            Map<Integer, double[][]> deltas = new TreeMap<>();
+            rooms.forEach((id, b) -> deltas.put(id, new double[][] {
+                    b.energyWhDeltas(), b.lowKWhDeltas(), b.highKWhDeltas()}));
+
+            int r = 0;
+            for (int g = 0; g < span; g++) {
+                long bucket = first + g;
+                for (Map.Entry<Integer, RoomBuckets> e : rooms.entrySet()) {
+                    RoomBuckets b = e.getValue();
+                    long k = bucket - b.first();
+                    if (k < 0 || k >= b.size() || b.samples((int) k) == 0) continue;
+                    int i = (int) k;
+                    int n = b.samples(i);
+                    double[][] d = deltas.get(e.getKey());
+                    start[r] = bucket * b.bucketMs;
+                    roomId[r] = e.getKey();
+                    samples[r] = n;
+                    heaterOnPct[r] = b.heaterOn(i) * 100.0 / n;
+                    meanTemp[r] = b.meanTemp(i);
+                    minTemp[r] = b.minTemp(i);
+                    maxTemp[r] = b.maxTemp(i);
+                    withinPct[r] = b.within(i) * 100.0 / n;
+                    belowPct[r] = b.below(i) * 100.0 / n;
+                    abovePct[r] = b.above(i) * 100.0 / n;
+                    energyWh[r] = d[0][i];
+                    lowKWh[r] = d[1][i];
+                    highKWh[r] = d[2][i];
+                    lowTicks[r] = b.lowTicks(i);
+                    highTicks[r] = b.highTicks(i);
+                    sitePeakKWh[r] = peak[g];
+                    r++;
+                }
+            }
+        }
+
+        RollupExport t = new RollupExport();
+        t.rows = rows;
+        t.add("bucketStartMs", start);
+        t.add("roomId", roomId);
+        t.add("samples", samples);
+        t.add("heaterOnPct", heaterOnPct);
+        t.add("meanTemp", meanTemp);
+        t.add("minTemp", minTemp);
+        t.add("maxTemp", maxTemp);
+        t.add("withinPct", withinPct);
+        t.add("belowPct", belowPct);
+        t.add("abovePct", abovePct);
+        t.add("energyWh", energyWh);
+        t.add("lowKWh", lowKWh);
+        t.add("highKWh", highKWh);
+        t.add("lowTicks", lowTicks);
+        t.add("highTicks", highTicks);
+        t.add("sitePeakKWh", sitePeakKWh);
+        return t;
+    }
+
+    private void add(String name, Object column) {
+        names.add(name);
+        columns.add(column);
+    }
+
+    // ===============================================================
+    // Salidas
+    // ===============================================================
+
+    private void writeCsv(Path out) throws IOException {
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(String.join(",", names));
+            w.newLine();
+            StringBuilder line = new StringBuilder(256);
+            for (int r = 0; r < rows; r++) {
+                line.setLength(0);
+                for (int c = 0; c < columns.size(); c++) {
+                    if (c > 0) line.append(',');
+                    Object col = columns.get(c);
+                    if (col instanceof long[]) {
+                        line.append(((long[]) col)[r]);
+                    } else if (col instanceof int[]) {
+                        line.append(((int[]) col)[r]);
+                    } else {
+                        line.append(((double[]) col)[r]);
+                    }
+                }
+                w.append(line);
+                w.newLine();
+            }
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeColumns(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve("schema.csv"));
+        StringBuilder schema = new StringBuilder("columna,tipo,filas\n");
+        for (int c = 0; c < columns.size(); c++) {
+            Object col = columns.get(c);
+            String type = col instanceof long[] ? "int64" : col instanceof int[] ? "int32" : "float64";
+            ByteBuffer buf = ByteBuffer.allocate(rows * (col instanceof int[] ? 4 : 8)).order(ByteOrder.LITTLE_ENDIAN);
+            if (col instanceof long[]) {
+                buf.asLongBuffer().put((long[]) col);
+            } else if (col instanceof int[]) {
+                buf.asIntBuffer().put((int[]) col);
+            } else {
+                buf.asDoubleBuffer().put((double[]) col);
+            }
+            try (OutputStream out = Files.newOutputStream(dir.resolve(names.get(c) + ".bin"))) {
+                out.write(buf.array());
+            }
+            schema.append(names.get(c)).append(',').append(type).append(',').append(rows).append('\n');
+        }
+        // El esquema va último: si está, las columnas están completas
+        Files.write(dir.resolve("schema.csv"), schema.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,302 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Agregados de un room por intervalo fijo de simTimeMs (--buckets), en
+ * arreglos primitivos paralelos indexados por número de bucket.
+ *
+ * Los contadores y extremos se suman o combinan directo. Para los acumulados
+ * del log (energy_Wh, lowKWh, highKWh) se guarda el último valor de cada
+ * bucket y el primero del room: el consumo de un bucket es la diferencia con
+ * el último valor anterior, que se calcula al exportar. Así un tramo leído en
+ * paralelo se combina con {@link #merge} sin conocer lo previo, igual que
+ * {@link RoomStats}.
+ *
+ * Los registros sin simTimeMs no caen en ningún bucket.
+ */
+final class RoomBuckets {
+
+    private static final int INITIAL = 16;
+
+    final long bucketMs;
+    /** Número de bucket (simTimeMs / bucketMs) de la posición 0, o Long.MIN_VALUE si está vacío. */
+    private long base = Long.MIN_VALUE;
+    private int size;
+
+    private int[] samples = new int[INITIAL];
+    private int[] heaterOn = new int[INITIAL];
+    private int[] within = new int[INITIAL];
+    private int[] below = new int[INITIAL];
+    private int[] above = new int[INITIAL];
+    private int[] lowTicks = new int[INITIAL];
+    private int[] highTicks = new int[INITIAL];
+    private double[] sumTemp = new double[INITIAL];
+    private double[] minTemp = new double[INITIAL];
+    private double[] maxTemp = new double[INITIAL];
+    // Último valor acumulado visto en el bucket; NaN si no hubo ninguno
+    private double[] lastEnergyWh = new double[INITIAL];
+    private double[] lastLowKWh = new double[INITIAL];
+    private double[] lastHighKWh = new double[INITIAL];
+
+    // Primer valor acumulado del room: el punto de partida del primer consumo
+    double firstEnergyWh = Double.NaN;
+    double firstLowKWh = Double.NaN;
+    double firstHighKWh = Double.NaN;
+
+    RoomBuckets(long bucketMs) {
+        this.bucketMs = bucketMs;
+    }
+
+    /** Número de bucket de {@code simTimeMs}, redondeando hacia abajo también en negativos. */
+    long bucket(long simTimeMs) {
+        return Math.floorDiv(simTimeMs, bucketMs);
+    }
+
+    long first() {
+        return base;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Suma un registro con simTimeMs. {@code lowTick}/{@code highTick} son los
+     * ticks de tarifa que ese registro sumó en {@link RoomStats}.
+     */
+    void accept(SimRecord rec, double expectedTemp, boolean lowTick, boolean highTick) {
+        int i = slot(bucket(rec.simTimeMs));
+        double temp = rec.tempC;
+        samples[i]++;
+        sumTemp[i] += temp;
+        if (temp < minTemp[i]) minTemp[i] = temp;
+        if (temp > maxTemp[i]) maxTemp[i] = temp;
+        if (Math.abs(temp - expectedTemp) <= RoomStats.RANGE) within[i]++;
+        if (temp < expectedTemp - RoomStats.RANGE) below[i]++;
+        if (temp > expectedTemp + RoomStats.RANGE) above[i]++;
+        if (rec.heaterOn) heaterOn[i]++;
+        if (lowTick) lowTicks[i]++;
+        if (highTick) highTicks[i]++;
+
+        if (rec.hasEnergyWh) {
+            if (Double.isNaN(firstEnergyWh)) firstEnergyWh = rec.energyWh;
+            lastEnergyWh[i] = rec.energyWh;
+        }
+        if (rec.hasLowKWh) {
+            if (Double.isNaN(firstLowKWh)) firstLowKWh = rec.lowKWh;
+            lastLowKWh[i] = rec.lowKWh;
+        }
+        if (rec.hasHighKWh) {
+            if (Double.isNaN(firstHighKWh)) firstHighKWh = rec.highKWh;
+            lastHighKWh[i] = rec.highKWh;
+        }
+    }
+
+    /** Tick de tarifa resuelto en el borde de un tramo (ver {@link RoomStats#merge}). */
+    void tick(long simTimeMs, boolean low) {
+        if (simTimeMs == Long.MIN_VALUE) return;
+        int i = slot(bucket(simTimeMs));
+        if (low) lowTicks[i]++; else highTicks[i]++;
+    }
+
+    /** Agrega el tramo {@code next}, que en el log viene a continuación. */
+    void merge(RoomBuckets next) {
+        if (Double.isNaN(firstEnergyWh)) firstEnergyWh = next.firstEnergyWh;
+        if (Double.isNaN(firstLowKWh)) firstLowKWh = next.firstLowKWh;
+        if (Double.isNaN(firstHighKWh)) firstHighKWh = next.firstHighKWh;
+        for (int k = 0; k < next.size; k++) {
+            if (next.samples[k] == 0 && next.lowTicks[k] == 0 && next.highTicks[k] == 0) continue;
+            int i = slot(next.base + k);
+            samples[i] += next.samples[k];
+            heaterOn[i] += next.heaterOn[k];
+            within[i] += next.within[k];
+            below[i] += next.below[k];
+            above[i] += next.above[k];
+            lowTicks[i] += next.lowTicks[k];
+            highTicks[i] += next.highTicks[k];
+            sumTemp[i] += next.sumTemp[k];
+            minTemp[i] = Math.min(minTemp[i], next.minTemp[k]);
+            maxTemp[i] = Math.max(maxTemp[i], next.maxTemp[k]);
+            // Lo que viene después en el log pisa el último valor
+            if (!Double.isNaN(next.lastEnergyWh[k])) lastEnergyWh[i] = next.lastEnergyWh[k];
+            if (!Double.isNaN(next.lastLowKWh[k])) lastLowKWh[i] = next.lastLowKWh[k];
+            if (!Double.isNaN(next.lastHighKWh[k])) lastHighKWh[i] = next.lastHighKWh[k];
+        }
+    }
+
+    // ===============================================================
+    // Lectura por bucket (posición k, bucket first() + k)
+    // ===============================================================
+    int samples(int k) { return samples[k]; }
+    int heaterOn(int k) { return heaterOn[k]; }
+    int within(int k) { return within[k]; }
+    int below(int k) { return below[k]; }
+    int above(int k) { return above[k]; }
+    int lowTicks(int k) { return lowTicks[k]; }
+    int highTicks(int k) { return highTicks[k]; }
+    double meanTemp(int k) { return samples[k] > 0 ? sumTemp[k] / samples[k] : Double.NaN; }
+    double minTemp(int k) { return samples[k] > 0 ? minTemp[k] : Double.NaN; }
+    double maxTemp(int k) { return samples[k] > 0 ? maxTemp[k] : Double.NaN; }
+
+    /** Consumo de cada bucket a partir de uno de los acumulados: diferencia con el último valor previo. */
+    double[] energyWhDeltas() {
+        return deltas(lastEnergyWh, firstEnergyWh);
+    }
+
+    double[] lowKWhDeltas() {
+        return deltas(lastLowKWh, firstLowKWh);
+    }
+
+    double[] highKWhDeltas() {
+        return deltas(lastHighKWh, firstHighKWh);
+    }
+
+    private double[] deltas(double[] last, double first) {
+        double[] out = new double[size];
+        double prev = first;
+        for (int k = 0; k < size; k++) {
+            if (Double.isNaN(last[k])) continue;
+            out[k] = last[k] - prev;
+            prev = last[k];
+        }
+        return out;
+    }
+
+    // ===============================================================
+    // Checkpoint
+    // ===============================================================
+    void write(DataOutput out) throws IOException {
+        out.writeLong(base);
+        out.writeInt(size);
+        for (int k = 0; k < size; k++) {
+            out.writeInt(samples[k]);
+            out.writeInt(heaterOn[k]);
+            out.writeInt(within[k]);
+            out.writeInt(below[k]);
+            out.writeInt(above[k]);
+            out.writeInt(lowTicks[k]);
+            out.writeInt(highTicks[k]);
+            out.writeDouble(sumTemp[k]);
+            out.writeDouble(minTemp[k]);
+            out.writeDouble(maxTemp[k]);
+            out.writeDouble(lastEnergyWh[k]);
+            out.writeDouble(lastLowKWh[k]);
+            out.writeDouble(lastHighKWh[k]);
+        }
+        out.writeDouble(firstEnergyWh);
+        out.writeDouble(firstLowKWh);
+        out.writeDouble(firstHighKWh);
+    }
+
+    static RoomBuckets read(DataInput in, long bucketMs) throws IOException {
+        RoomBuckets b = new RoomBuckets(bucketMs);
+        long base = in.readLong();
+        int size = in.readInt();
+        if (size > 0) {
+            b.slot(base + size - 1);
+            b.slot(base);
+        }
+        for (int k = 0; k < size; k++) {
+            b.samples[k] = in.readInt();
+            b.heaterOn[k] = in.readInt();
+            b.within[k] = in.readInt();
+            b.below[k] = in.readInt();
+            b.above[k] = in.readInt();
+            b.lowTicks[k] = in.readInt();
+            b.highTicks[k] = in.readInt();
+            b.sumTemp[k] = in.readDouble();
+            b.minTemp[k] = in.readDouble();
+            b.maxTemp[k] = in.readDouble();
+            b.lastEnergyWh[k] = in.readDouble();
+            b.lastLowKWh[k] = in.readDouble();
+            b.lastHighKWh[k] = in.readDouble();
+        }
+        b.firstEnergyWh = in.readDouble();
+        b.firstLowKWh = in.readDouble();
+        b.firstHighKWh = in.readDouble();
+        return b;
+    }
+
+    // ===============================================================
+    // Helpers
+    // ===============================================================
+
+    /** Posición del bucket {@code bucket}, agrandando los arreglos hacia el lado que haga falta. */
+    private int slot(long bucket) {
+        if (size == 0) {
+            base = bucket;
+            size = 1;
+            clear(0, 1);
+            return 0;
+        }
+        if (bucket >= base && bucket < base + size) return (int) (bucket - base);
+        if (bucket >= base + size) {
+            long needed = bucket - base + 1;
+            if (needed > Integer.MAX_VALUE - 8) throw new IllegalStateException("Demasiados buckets: " + needed);
+            int n = (int) needed;
+            if (n > samples.length) resize(Math.max(n, samples.length * 2), 0);
+            clear(size, n);
+            size = n;
+            return n - 1;
+        }
+        // Bucket anterior al primero: se corre todo hacia adelante
+        long shiftL = base - bucket;
+        if (shiftL + size > Integer.MAX_VALUE - 8) throw new IllegalStateException("Demasiados buckets");
+        int shift = (int) shiftL;
+        resize(Math.max(size + shift, samples.length), shift);
+        clear(0, shift);
+        size += shift;
+        base = bucket;
+        return 0;
+    }
+
+    /** Arreglos de capacidad {@code cap} con el contenido actual a partir de {@code offset}. */
+    private void resize(int cap, int offset) {
+        samples = move(samples, cap, offset);
+        heaterOn = move(heaterOn, cap, offset);
+        within = move(within, cap, offset);
+        below = move(below, cap, offset);
+        above = move(above, cap, offset);
+        lowTicks = move(lowTicks, cap, offset);
+        highTicks = move(highTicks, cap, offset);
+        sumTemp = move(sumTemp, cap, offset);
+        minTemp = move(minTemp, cap, offset);
+        maxTemp = move(maxTemp, cap, offset);
+        lastEnergyWh = move(lastEnergyWh, cap, offset);
+        lastLowKWh = move(lastLowKWh, cap, offset);
+        lastHighKWh = move(lastHighKWh, cap, offset);
+    }
+
+    private int[] move(int[] a, int cap, int offset) {
+        int[] b = new int[cap];
+        System.arraycopy(a, 0, b, offset, size);
+        return b;
+    }
+
+    private double[] move(double[] a, int cap, int offset) {
+        double[] b = new double[cap];
+        System.arraycopy(a, 0, b, offset, size);
+        return b;
+    }
+
+    /** Deja vacías las posiciones [from, to). */
+    private void clear(int from, int to) {
+        Arrays.fill(samples, from, to, 0);
+        Arrays.fill(heaterOn, from, to, 0);
+        Arrays.fill(within, from, to, 0);
+        Arrays.fill(below, from, to, 0);
+        Arrays.fill(above, from, to, 0);
+        Arrays.fill(lowTicks, from, to, 0);
+        Arrays.fill(highTicks, from, to, 0);
+        Arrays.fill(sumTemp, from, to, 0);
+        Arrays.fill(minTemp, from, to, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxTemp, from, to, Double.NEGATIVE_INFINITY);
+        Arrays.fill(lastEnergyWh, from, to, Double.NaN);
+        Arrays.fill(lastLowKWh, from, to, Double.NaN);
+        Arrays.fill(lastHighKWh, from, to, Double.NaN);
+    }
+}
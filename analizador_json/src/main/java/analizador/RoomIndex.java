@@ -0,0 +1,141 @@
+package analizador;
+
+import java.util.Arrays;
+
+/**
+ * Rooms de un agregador, en orden de primera aparición y por id primitivo.
+ *
+ * Cada room ocupa un slot (0, 1, 2, ...) en el orden en que se agregó: primero
+ * los de simulation_config.json y después los que van apareciendo en el log.
+ * El reporte, el checkpoint y el merge recorren los slots en ese orden.
+ *
+ * La búsqueda de cada registro no arma un Integer: si los ids configurados caen
+ * en un rango compacto (lo normal, 1..N) el slot sale de un arreglo denso
+ * indexado por {@code id - base}, y la búsqueda es una resta y un acceso. Si el
+ * rango es disperso, o aparece un id fuera de él, se usa una tabla de
+ * direccionamiento abierto de claves int.
+ *
+ * @param <T> estado por room ({@link RoomStats} en el agregador)
+ */
+final class RoomIndex<T> {
+
+    /** Rango denso máximo por room configurado: más que esto, se prefiere el hash. */
+    private static final int DENSE_SLACK = 4;
+    private static final int DENSE_EXTRA = 1024;
+
+    private final int base;
+    /** Slot + 1 de cada id del rango denso; 0 si el room no está. */
+    private final int[] dense;
+
+    // Direccionamiento abierto para los ids fuera del rango denso (slot + 1; 0 libre)
+    private int[] keys = new int[16];
+    private int[] hashSlots = new int[16];
+    private int hashed;
+
+    // Por slot
+    private int[] ids = new int[16];
+    private Object[] values = new Object[16];
+    private int size;
+
+    /** @param configIds los ids de la configuración, que fijan el rango denso */
+    RoomIndex(int[] configIds) {
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int id : configIds) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        long span = configIds.length == 0 ? 0 : (long) max - min + 1;
+        if (span > 0 && span <= (long) configIds.length * DENSE_SLACK + DENSE_EXTRA) {
+            // Algo de margen arriba para los rooms que aparecen en el log sin estar configurados
+            base = min;
+            dense = new int[(int) Math.min(Integer.MAX_VALUE - 8, span + configIds.length / 4 + 16)];
+        } else {
+            base = 0;
+            dense = new int[0];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int id(int slot) {
+        return ids[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    T at(int slot) {
+        return (T) values[slot];
+    }
+
+    /** El room {@code id}, o null si todavía no apareció. */
+    T get(int id) {
+        int slot = slot(id);
+        return slot >= 0 ? at(slot) : null;
+    }
+
+    /** Slot del room {@code id}, o -1 si no está. */
+    int slot(int id) {
+        int d = id - base;
+        if (d >= 0 && d < dense.length && id >= base) return dense[d] - 1;
+        if (hashed == 0) return -1;
+        int mask = keys.length - 1;
+        for (int i = mix(id) & mask; hashSlots[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) return hashSlots[i] - 1;
+        }
+        return -1;
+    }
+
+    /** Agrega el room {@code id}, que no tiene que estar, en el slot siguiente. */
+    int add(int id, T value) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int slot = size++;
+        ids[slot] = id;
+        values[slot] = value;
+
+        int d = id - base;
+        if (d >= 0 && d < dense.length && id >= base) {
+            dense[d] = slot + 1;
+        } else {
+            if ((hashed + 1) * 2 > keys.length) rehash(keys.length * 2);
+            insert(id, slot + 1);
+        }
+        return slot;
+    }
+
+    void clear() {
+        Arrays.fill(dense, 0);
+        Arrays.fill(hashSlots, 0);
+        Arrays.fill(values, 0, size, null);
+        hashed = 0;
+        size = 0;
+    }
+
+    private void insert(int id, int slotPlusOne) {
+        int mask = keys.length - 1;
+        int i = mix(id) & mask;
+        while (hashSlots[i] != 0) i = (i + 1) & mask;
+        keys[i] = id;
+        hashSlots[i] = slotPlusOne;
+        hashed++;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldSlots = hashSlots;
+        keys = new int[capacity];
+        hashSlots = new int[capacity];
+        hashed = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != 0) insert(oldKeys[i], oldSlots[i]);
+        }
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,331 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Estado acumulado de un room a lo largo del log del simulador.
+ *
+ * Los campos que dependen del orden (lastEnergyWh, lastLowKWh/lastHighKWh y los
+ * ticks de tarifa) se pueden acumular por tramos: un RoomStats de tramo arranca
+ * sin conocer el valor previo de lowKWh/highKWh y guarda la primera lectura
+ * para resolver el tick pendiente al hacer {@link #merge}.
+ *
+ * Las temperaturas no se guardan: las bandas de confort, la media, la varianza
+ * y el histograma para percentiles se actualizan al ingerir, con memoria fija.
+ */
+final class RoomStats {
+
+    static final double RANGE = 0.5; // ±0.5 °C
+
+    double expectedTemp;
+    double energyKWh;
+    long samples = 0;
+    long withinRange = 0;
+    long belowRange = 0;
+    long aboveRange = 0;
+    double meanTemp = 0;
+    private double m2Temp = 0;   // suma de cuadrados de desvíos (Welford)
+    final TempHistogram histogram = new TempHistogram();
+    int heaterOnCount = 0;
+    double lastEnergyWh = 0;
+    double minTemp = Double.POSITIVE_INFINITY;
+    double maxTemp = Double.NEGATIVE_INFINITY;
+    int userInteractions = 0;
+    int lowTicks = 0;
+    int highTicks = 0;
+    double lastLowKWh = 0;
+    double lastHighKWh = 0;
+
+    // Estado del heater para PeakLoadEngine
+    boolean heaterOnNow;
+    long lastSimTime = Long.MIN_VALUE;
+    private boolean heaterKnown;
+    private boolean pendingHeater;
+    private boolean firstHeaterOn;
+    private long firstHeaterTime;
+
+    // Estado de tramo (ver merge)
+    private boolean energySeen;
+    private boolean lowKnown;
+    private boolean highKnown;
+    private boolean pendingLow;
+    private boolean pendingHigh;
+    private double firstLowKWh;
+    private double firstHighKWh;
+    private boolean firstLowHeaterOn;
+    private boolean firstHighHeaterOn;
+    // simTimeMs de esas primeras lecturas, para ubicar su tick en un bucket
+    private long firstLowTime = Long.MIN_VALUE;
+    private long firstHighTime = Long.MIN_VALUE;
+
+    /** Agregados por intervalo de simTimeMs (--buckets); null si no se pidieron. */
+    RoomBuckets buckets;
+
+    RoomStats() {
+        this(true);
+    }
+
+    /** @param knownStart false para un tramo que no empieza al comienzo del log */
+    RoomStats(boolean knownStart) {
+        this.lowKnown = knownStart;
+        this.highKnown = knownStart;
+        this.heaterKnown = knownStart;
+    }
+
+    RoomStats(SimulationConfig.Room room, boolean knownStart) {
+        this(knownStart);
+        this.expectedTemp = room.expectedTemp;
+        this.energyKWh = room.energyKWh;
+    }
+
+    void accept(SimRecord rec) {
+        double temp = rec.tempC;
+        samples++;
+        if (temp < minTemp) minTemp = temp;
+        if (temp > maxTemp) maxTemp = temp;
+
+        if (Math.abs(temp - expectedTemp) <= RANGE) withinRange++;
+        if (temp < expectedTemp - RANGE) belowRange++;
+        if (temp > expectedTemp + RANGE) aboveRange++;
+
+        double delta = temp - meanTemp;
+        meanTemp += delta / samples;
+        m2Temp += delta * (temp - meanTemp);
+        histogram.add(temp);
+
+        boolean heaterOn = rec.heaterOn;
+        if (heaterOn) heaterOnCount++;
+
+        if (rec.hasEnergyWh) {
+            lastEnergyWh = rec.energyWh;
+            energySeen = true;
+        }
+
+        boolean lowTick = false;
+        if (rec.hasLowKWh) {
+            if (lowKnown) {
+                lowTick = heaterOn && rec.lowKWh > lastLowKWh;
+                if (lowTick) lowTicks++;
+            } else {
+                lowKnown = true;
+                pendingLow = true;
+                firstLowKWh = rec.lowKWh;
+                firstLowHeaterOn = heaterOn;
+                firstLowTime = rec.hasSimTime ? rec.simTimeMs : Long.MIN_VALUE;
+            }
+            lastLowKWh = rec.lowKWh;
+        }
+
+        boolean highTick = false;
+        if (rec.hasHighKWh) {
+            if (highKnown) {
+                highTick = heaterOn && rec.highKWh > lastHighKWh;
+                if (highTick) highTicks++;
+            } else {
+                highKnown = true;
+                pendingHigh = true;
+                firstHighKWh = rec.highKWh;
+                firstHighHeaterOn = heaterOn;
+                firstHighTime = rec.hasSimTime ? rec.simTimeMs : Long.MIN_VALUE;
+            }
+            lastHighKWh = rec.highKWh;
+        }
+
+        if (buckets != null && rec.hasSimTime) buckets.accept(rec, expectedTemp, lowTick, highTick);
+    }
+
+    /**
+     * Registra el estado del heater en {@code simTime} y agrega a {@code peak} el
+     * evento de carga si hubo una transición. Un tramo que todavía no conoce el
+     * estado previo guarda la primera lectura para resolverla en el merge.
+     */
+    void trackHeater(long simTime, boolean on, PeakLoadEngine peak) {
+        if (simTime > lastSimTime) lastSimTime = simTime;
+        if (!heaterKnown) {
+            heaterKnown = true;
+            pendingHeater = true;
+            firstHeaterOn = on;
+            firstHeaterTime = simTime;
+        } else if (on != heaterOnNow) {
+            peak.add(simTime, on ? energyKWh : -energyKWh);
+        }
+        heaterOnNow = on;
+    }
+
+    /** Varianza poblacional de las temperaturas. */
+    double varianceTemp() {
+        return samples > 0 ? m2Temp / samples : 0;
+    }
+
+    double percentileTemp(double q) {
+        return histogram.quantile(q, minTemp, maxTemp);
+    }
+
+    /**
+     * Agrega a este room el tramo {@code next}, que en el log viene a continuación.
+     * La transición del heater en el borde entre tramos se registra en {@code peak}.
+     */
+    void merge(RoomStats next, PeakLoadEngine peak) {
+        if (next.pendingHeater) {
+            if (!heaterKnown) {
+                heaterKnown = true;
+                pendingHeater = true;
+                firstHeaterOn = next.firstHeaterOn;
+                firstHeaterTime = next.firstHeaterTime;
+            } else if (next.firstHeaterOn != heaterOnNow) {
+                peak.add(next.firstHeaterTime, next.firstHeaterOn ? energyKWh : -energyKWh);
+            }
+        }
+        if (next.heaterKnown) heaterOnNow = next.heaterOnNow;
+        if (next.lastSimTime > lastSimTime) lastSimTime = next.lastSimTime;
+
+        if (next.samples > 0) {
+            long n = samples + next.samples;
+            double delta = next.meanTemp - meanTemp;
+            meanTemp += delta * next.samples / n;
+            m2Temp += next.m2Temp + delta * delta * ((double) samples * next.samples / n);
+            samples = n;
+        }
+        withinRange += next.withinRange;
+        belowRange += next.belowRange;
+        aboveRange += next.aboveRange;
+        histogram.merge(next.histogram);
+        if (next.minTemp < minTemp) minTemp = next.minTemp;
+        if (next.maxTemp > maxTemp) maxTemp = next.maxTemp;
+        heaterOnCount += next.heaterOnCount;
+        userInteractions += next.userInteractions;
+
+        if (next.energySeen) {
+            lastEnergyWh = next.lastEnergyWh;
+            energySeen = true;
+        }
+
+        if (next.buckets != null) {
+            if (buckets == null) buckets = new RoomBuckets(next.buckets.bucketMs);
+            buckets.merge(next.buckets);
+        }
+
+        lowTicks += next.lowTicks;
+        if (next.pendingLow) {
+            if (!lowKnown) {
+                lowKnown = true;
+                pendingLow = true;
+                firstLowKWh = next.firstLowKWh;
+                firstLowHeaterOn = next.firstLowHeaterOn;
+                firstLowTime = next.firstLowTime;
+            } else if (next.firstLowHeaterOn && next.firstLowKWh > lastLowKWh) {
+                lowTicks++;
+                if (buckets != null) buckets.tick(next.firstLowTime, true);
+            }
+        }
+        if (next.lowKnown) lastLowKWh = next.lastLowKWh;
+
+        highTicks += next.highTicks;
+        if (next.pendingHigh) {
+            if (!highKnown) {
+                highKnown = true;
+                pendingHigh = true;
+                firstHighKWh = next.firstHighKWh;
+                firstHighHeaterOn = next.firstHighHeaterOn;
+                firstHighTime = next.firstHighTime;
+            } else if (next.firstHighHeaterOn && next.firstHighKWh > lastHighKWh) {
+                highTicks++;
+                if (buckets != null) buckets.tick(next.firstHighTime, false);
+            }
+        }
+        if (next.highKnown) lastHighKWh = next.lastHighKWh;
+    }
+
+    // ===============================================================
+    // Checkpoint
+    // ===============================================================
+    void write(DataOutput out) throws IOException {
+        out.writeDouble(expectedTemp);
+        out.writeDouble(energyKWh);
+        out.writeLong(samples);
+        out.writeLong(withinRange);
+        out.writeLong(belowRange);
+        out.writeLong(aboveRange);
+        out.writeDouble(meanTemp);
+        out.writeDouble(m2Temp);
+        histogram.write(out);
+        out.writeInt(heaterOnCount);
+        out.writeDouble(lastEnergyWh);
+        out.writeDouble(minTemp);
+        out.writeDouble(maxTemp);
+        out.writeInt(userInteractions);
+        out.writeInt(lowTicks);
+        out.writeInt(highTicks);
+        out.writeDouble(lastLowKWh);
+        out.writeDouble(lastHighKWh);
+
+        out.writeBoolean(heaterOnNow);
+        out.writeLong(lastSimTime);
+        out.writeBoolean(heaterKnown);
+        out.writeBoolean(pendingHeater);
+        out.writeBoolean(firstHeaterOn);
+        out.writeLong(firstHeaterTime);
+
+        out.writeBoolean(energySeen);
+        out.writeBoolean(lowKnown);
+        out.writeBoolean(highKnown);
+        out.writeBoolean(pendingLow);
+        out.writeBoolean(pendingHigh);
+        out.writeDouble(firstLowKWh);
+        out.writeDouble(firstHighKWh);
+        out.writeBoolean(firstLowHeaterOn);
+        out.writeBoolean(firstHighHeaterOn);
+        out.writeLong(firstLowTime);
+        out.writeLong(firstHighTime);
+
+        out.writeLong(buckets != null ? buckets.bucketMs : 0);
+        if (buckets != null) buckets.write(out);
+    }
+
+    static RoomStats read(DataInput in) throws IOException {
+        RoomStats st = new RoomStats();
+        st.expectedTemp = in.readDouble();
+        st.energyKWh = in.readDouble();
+        st.samples = in.readLong();
+        st.withinRange = in.readLong();
+        st.belowRange = in.readLong();
+        st.aboveRange = in.readLong();
+        st.meanTemp = in.readDouble();
+        st.m2Temp = in.readDouble();
+        st.histogram.read(in);
+        st.heaterOnCount = in.readInt();
+        st.lastEnergyWh = in.readDouble();
+        st.minTemp = in.readDouble();
+        st.maxTemp = in.readDouble();
+        st.userInteractions = in.readInt();
+        st.lowTicks = in.readInt();
+        st.highTicks = in.readInt();
+        st.lastLowKWh = in.readDouble();
+        st.lastHighKWh = in.readDouble();
+
+        st.heaterOnNow = in.readBoolean();
+        st.lastSimTime = in.readLong();
+        st.heaterKnown = in.readBoolean();
+        st.pendingHeater = in.readBoolean();
+        st.firstHeaterOn = in.readBoolean();
+        st.firstHeaterTime = in.readLong();
+
+        st.energySeen = in.readBoolean();
+        st.lowKnown = in.readBoolean();
+        st.highKnown = in.readBoolean();
+        st.pendingLow = in.readBoolean();
+        st.pendingHigh = in.readBoolean();
+        st.firstLowKWh = in.readDouble();
+        st.firstHighKWh = in.readDouble();
+        st.firstLowHeaterOn = in.readBoolean();
+        st.firstHighHeaterOn = in.readBoolean();
+        st.firstLowTime = in.readLong();
+        st.firstHighTime = in.readLong();
+
+        long bucketMs = in.readLong();
+        if (bucketMs > 0) st.buckets = RoomBuckets.read(in, bucketMs);
+        return st;
+    }
+}
@@ -0,0 +1,273 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Acumula el log del simulador (paso 2 de los analizadores): estadísticas por
+ * room, transiciones del heater para el pico de consumo y rango de simTimeMs.
+ *
+ * Un agregador de tramo ({@link #forChunk}) procesa un pedazo del log sin
+ * conocer lo anterior; {@link #merge} lo agrega al principal respetando el
+ * orden del archivo, así el resultado es idéntico al de una lectura serial.
+ */
+final class SimAggregator {
+
+    /** Rooms por id primitivo, en orden de primera aparición: el del reporte y el checkpoint. */
+    final RoomIndex<RoomStats> rooms;
+    final PeakLoadEngine peakLoad = new PeakLoadEngine();
+    long minSimTime = Long.MAX_VALUE;
+    long maxSimTime = Long.MIN_VALUE;
+    /** Líneas leídas del log; con --from/--to depende de si el índice ya existía (ver {@link #lineasProcesadas}). */
+    long totalLines = 0;
+    long validJson = 0;
+
+    /** Si no es null, cada registro válido se copia también a la caché columnar. */
+    ColumnarCache.Part cachePart;
+    /** Si no es null, se registran offsets de línea y simTimeMs para el índice de tiempo. */
+    SparseTimeIndex.Part indexPart;
+
+    // Rango de simTimeMs a analizar, [fromMs, toMs); sin rango se acepta todo
+    long fromMs = Long.MIN_VALUE;
+    long toMs = Long.MAX_VALUE;
+    private boolean ranged;
+
+    /** false si no se pidió el pico: no se registran las transiciones del heater. */
+    boolean trackPeak = true;
+
+    /** Tamaño de los buckets de simTimeMs por room (--buckets); 0 sin buckets. */
+    long bucketMs;
+
+    /** Reglas de alerta de la configuración; null sin reglas. Sólo en el agregador principal, que recibe el log en orden. */
+    AnomalyDetector alertas;
+
+    /** Etapa de ingesta a la que se vuelca {@link #contador}; la comparten los tramos. */
+    IngestStats.Etapa etapa = new IngestStats.Etapa("simulador");
+    /** Líneas, registros y descartes de este agregador todavía no volcados. */
+    final IngestStats.Contador contador = new IngestStats.Contador();
+
+    private final SimulationConfig config;
+    private final boolean chunk;
+    private final SimRecordReader reader = new SimRecordReader();
+    private final SimRecord rec = new SimRecord();
+
+    private SimAggregator(SimulationConfig config, boolean chunk) {
+        this.config = config;
+        this.chunk = chunk;
+        // Los tramos conservan el orden de aparición para que el merge agregue
+        // los rooms al principal en el mismo orden que la lectura serial.
+        // Un tramo arranca vacío: sólo tiene los rooms que aparecen en él.
+        this.rooms = new RoomIndex<>(config.rooms.stream().mapToInt(r -> r.id).toArray());
+        if (!chunk) {
+            for (SimulationConfig.Room room : config.rooms) {
+                rooms.add(room.id, new RoomStats(room, true));
+            }
+        }
+    }
+
+    static SimAggregator create(SimulationConfig config) {
+        return new SimAggregator(config, false);
+    }
+
+    static SimAggregator forChunk(SimulationConfig config) {
+        return new SimAggregator(config, true);
+    }
+
+    /** Agregador de tramo con el mismo rango y las mismas métricas que éste. */
+    SimAggregator newChunk(SimulationConfig config) {
+        SimAggregator part = forChunk(config);
+        part.restrict(fromMs, toMs);
+        part.trackPeak = trackPeak;
+        part.etapa = etapa;
+        part.buckets(bucketMs);
+        return part;
+    }
+
+    /** Procesa una línea cruda del log: prefiltros, parseo y acumulación. */
+    void acceptLine(LineScanner line) {
+        totalLines++;
+        contador.lineas++;
+        contador.bytes += line.length() + 1;
+        if (indexPart != null) indexPart.line(line.lineOffset());
+        IngestStats.Motivo descarte = parse(line, reader, rec);
+        if (descarte == null) {
+            if (cachePart != null) cachePart.add(rec);
+            if (indexPart != null && rec.hasSimTime) indexPart.time(rec.simTimeMs);
+            accept(rec);
+        } else {
+            contador.descartar(descarte);
+        }
+    }
+
+    /**
+     * Prefiltros y parseo de una línea, sin acumular. Devuelve null si es un
+     * registro válido, o el motivo por el que se descarta. Una línea cortada
+     * antes de cerrar el objeto se rechaza sin llegar al parser, así lo común
+     * no paga la excepción de Jackson.
+     */
+    static IngestStats.Motivo parse(LineScanner line, SimRecordReader reader, SimRecord rec) {
+        if (line.contains(LogPatterns.STDOUT_LOGGER)) return IngestStats.Motivo.STDOUT;
+
+        int start = line.lastIndexOf((byte) '{');
+        if (start < 0) return IngestStats.Motivo.SIN_JSON;
+        // Después de la última '{' no puede haber objetos anidados: sin '}' no cierra
+        if (line.lastIndexOf((byte) '}') < start) return IngestStats.Motivo.TRUNCADO;
+
+        try {
+            if (reader.read(line.buffer(), start, line.end() - start, rec)) return null;
+            return reader.objetoCompleto() ? IngestStats.Motivo.INCOMPLETO : IngestStats.Motivo.JSON_INVALIDO;
+        } catch (IOException | RuntimeException e) {
+            return IngestStats.Motivo.JSON_INVALIDO;
+        }
+    }
+
+    /** Vuelca el contador a la etapa; desde el hilo que lo llena o después de que terminó. */
+    void volcar() {
+        etapa.volcar(contador);
+    }
+
+    /** Room con ese id, creándolo la primera vez que aparece. */
+    RoomStats room(int roomId) {
+        RoomStats st = rooms.get(roomId);
+        if (st == null) rooms.add(roomId, st = newRoom(roomId));
+        return st;
+    }
+
+    boolean ranged() {
+        return ranged;
+    }
+
+    /**
+     * Líneas que informa el reporte. Sin rango, todas las del log. Con
+     * --from/--to, sólo las que caen en [fromMs, toMs): las líneas leídas
+     * dependen de si ya estaba {@code <log>.idx} (la primera lectura recorre el
+     * archivo entero, las siguientes sólo los bloques del rango), y una línea
+     * sin simTimeMs no se puede ubicar en la ventana, así que se cuentan los
+     * registros dentro del rango, igual por cualquier camino de lectura.
+     */
+    long lineasProcesadas() {
+        return ranged ? validJson : totalLines;
+    }
+
+    /** Lleva agregados por buckets de {@code bucketMs} en cada room; 0 los desactiva. */
+    void buckets(long bucketMs) {
+        this.bucketMs = bucketMs;
+        for (int s = 0; s < rooms.size(); s++) {
+            rooms.at(s).buckets = bucketMs > 0 ? new RoomBuckets(bucketMs) : null;
+        }
+    }
+
+    /** Limita el análisis a los registros con simTimeMs en [fromMs, toMs). */
+    void restrict(long fromMs, long toMs) {
+        this.fromMs = fromMs;
+        this.toMs = toMs;
+        this.ranged = fromMs != Long.MIN_VALUE || toMs != Long.MAX_VALUE;
+    }
+
+    void accept(SimRecord rec) {
+        // Con rango, los registros sin simTimeMs no se pueden ubicar y se descartan
+        if (ranged && (!rec.hasSimTime || rec.simTimeMs < fromMs || rec.simTimeMs >= toMs)) {
+            contador.descartar(IngestStats.Motivo.FUERA_DE_RANGO);
+            return;
+        }
+
+        RoomStats st = room(rec.roomId);
+        st.accept(rec);
+        if (alertas != null) alertas.accept(rec);
+
+        if (rec.hasSimTime) {
+            long simTime = rec.simTimeMs;
+            if (simTime < minSimTime) minSimTime = simTime;
+            if (simTime > maxSimTime) maxSimTime = simTime;
+
+            if (trackPeak) st.trackHeater(simTime, rec.heaterOn, peakLoad);
+        }
+
+        validJson++;
+        contador.registros++;
+    }
+
+    /**
+     * Pico de consumo simultáneo y curva de duración de carga sobre todo el rango
+     * simulado. Los rooms que siguen encendidos se apagan implícitamente después
+     * de su último registro.
+     */
+    PeakLoadEngine.Result peakLoad() {
+        if (minSimTime == Long.MAX_VALUE) {
+            return new PeakLoadEngine().sweep(0, 0, new PeakLoadEngine());
+        }
+        PeakLoadEngine closing = new PeakLoadEngine();
+        for (int s = 0; s < rooms.size(); s++) {
+            RoomStats st = rooms.at(s);
+            if (st.heaterOnNow) closing.add(st.lastSimTime + 1, -st.energyKWh);
+        }
+        return peakLoad.sweep(minSimTime, maxSimTime + 1, closing);
+    }
+
+    /** Room que aparece por primera vez, con sus datos de configuración si los tiene. */
+    private RoomStats newRoom(int roomId) {
+        SimulationConfig.Room room = config.room(roomId);
+        RoomStats st = room != null ? new RoomStats(room, !chunk) : new RoomStats(!chunk);
+        if (bucketMs > 0) st.buckets = new RoomBuckets(bucketMs);
+        return st;
+    }
+
+    /**
+     * Carga simultánea máxima del sitio en cada uno de {@code count} buckets
+     * de {@link #bucketMs}, desde el bucket número {@code first}.
+     */
+    double[] peakByBucket(long first, int count) {
+        if (minSimTime == Long.MAX_VALUE) return new double[count];
+        PeakLoadEngine closing = new PeakLoadEngine();
+        for (int s = 0; s < rooms.size(); s++) {
+            RoomStats st = rooms.at(s);
+            if (st.heaterOnNow) closing.add(st.lastSimTime + 1, -st.energyKWh);
+        }
+        return peakLoad.maxByBucket(minSimTime, maxSimTime + 1, closing, bucketMs, first, count);
+    }
+
+    /** Agrega el tramo {@code next}, que en el archivo viene a continuación de lo ya acumulado. */
+    void merge(SimAggregator next) {
+        next.volcar();
+        for (int s = 0; s < next.rooms.size(); s++) {
+            room(next.rooms.id(s)).merge(next.rooms.at(s), peakLoad);
+        }
+        peakLoad.addAll(next.peakLoad);
+        minSimTime = Math.min(minSimTime, next.minSimTime);
+        maxSimTime = Math.max(maxSimTime, next.maxSimTime);
+        totalLines += next.totalLines;
+        validJson += next.validJson;
+    }
+
+    // ===============================================================
+    // Checkpoint
+    // ===============================================================
+    void write(DataOutput out) throws IOException {
+        out.writeLong(totalLines);
+        out.writeLong(validJson);
+        out.writeLong(minSimTime);
+        out.writeLong(maxSimTime);
+        out.writeInt(rooms.size());
+        for (int s = 0; s < rooms.size(); s++) {
+            out.writeInt(rooms.id(s));
+            rooms.at(s).write(out);
+        }
+        peakLoad.write(out);
+    }
+
+    /** Reemplaza el estado acumulado por el guardado con {@link #write}. */
+    void read(DataInput in) throws IOException {
+        totalLines = in.readLong();
+        validJson = in.readLong();
+        minSimTime = in.readLong();
+        maxSimTime = in.readLong();
+        rooms.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            rooms.add(id, RoomStats.read(in));
+        }
+        peakLoad.read(in);
+    }
+}
@@ -0,0 +1,331 @@
+package analizador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lectura del log del simulador, serial o en paralelo.
+ *
+ * En modo paralelo el archivo se parte en tramos alineados a fin de línea que
+ * se leen con lecturas posicionales de un FileChannel compartido. Cada worker
+ * acumula su tramo en un {@link SimAggregator} propio y los parciales se
+ * combinan en el orden del archivo. Los tramos se piden de a unos pocos por
+ * hilo: el agregador de cada uno se arma al leerlo y se suelta al combinarlo.
+ *
+ * Con {@code --cache} los registros parseados se guardan además en una caché
+ * columnar ({@link ColumnarCache}); las corridas siguientes sobre el mismo log
+ * la recorren en lugar de volver a parsear el JSON.
+ *
+ * Con {@code --from}/{@code --to} la primera lectura completa arma un
+ * {@link SparseTimeIndex}; las siguientes leen sólo los bloques del rango.
+ *
+ * Un log comprimido o con {@code --rotados} sólo se lee de corrido
+ * ({@link LogInput}): sin tramos paralelos ni índice, y sin caché con rotados.
+ */
+final class SimIngest {
+
+    /** Por debajo de este tamaño de tramo no vale la pena repartir el archivo. */
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Tramos por hilo que pueden estar en vuelo (leyéndose o esperando el merge). */
+    private static final int IN_FLIGHT_PER_THREAD = 2;
+
+    private SimIngest() { }
+
+    static void ingest(Path logPath, SimAggregator target, SimulationConfig config, Opciones opciones)
+            throws IOException {
+        // Comprimido o con rotados: no hay offsets de archivo para tramos ni para el índice
+        boolean secuencial = LogInput.secuencial(logPath, opciones.rotados);
+        // La caché se valida contra un solo archivo, así que no cubre los rotados
+        boolean usarCache = opciones.cache && !opciones.rotados;
+
+        target.etapa.iniciar();
+        try {
+            read(logPath, target, config, opciones, secuencial, usarCache);
+        } finally {
+            target.volcar();
+            target.etapa.terminar();
+        }
+    }
+
+    private static void read(Path logPath, SimAggregator target, SimulationConfig config, Opciones opciones,
+                             boolean secuencial, boolean usarCache) throws IOException {
+        if (usarCache) {
+            try (ColumnarCache cache = ColumnarCache.open(logPath)) {
+                if (cache != null) {
+                    cache.replay(target, config, opciones.threads);
+                    return;
+                }
+            }
+        } else if (opciones.ranged() && !secuencial) {
+            SparseTimeIndex index = SparseTimeIndex.open(logPath);
+            if (index != null) {
+                readRanges(logPath, target, config, opciones.threads,
+                        index.ranges(opciones.fromMs, opciones.toMs));
+                return;
+            }
+        }
+
+        // Lectura completa, armando de paso la caché y/o el índice pedidos
+        Sidecars sidecars = new Sidecars();
+        if (opciones.ranged() && !secuencial) sidecars.index = new SparseTimeIndex.Builder(logPath);
+        if (usarCache) {
+            try {
+                sidecars.cache = ColumnarCache.Builder.create(logPath);
+            } catch (IOException e) {
+                System.err.println("No se pudo crear la caché columnar (" + e + "), se continúa sin ella.");
+            }
+        }
+
+        try {
+            if (secuencial) {
+                streamed(LogInput.open(logPath, opciones.rotados), target, sidecars);
+            } else if (opciones.threads <= 1) {
+                serial(logPath, target, sidecars);
+            } else {
+                parallel(logPath, target, config, opciones.threads, sidecars);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (sidecars.cache != null) sidecars.cache.abort();
+            throw e;
+        }
+
+        try {
+            if (sidecars.cache != null && !sidecars.cache.finish(target.totalLines)
+                    || sidecars.index != null && !sidecars.index.finish()) {
+                System.err.println("El log cambió durante la lectura, no se guardan la caché ni el índice.");
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la caché o el índice del log: " + e);
+        }
+    }
+
+    static void serial(Path logPath, SimAggregator target, Sidecars sidecars) throws IOException {
+        streamed(LogInput.open(logPath), target, sidecars);
+    }
+
+    /** Lectura de corrido de {@code in}, que se cierra al terminar. */
+    static void streamed(InputStream in, SimAggregator target, Sidecars sidecars) throws IOException {
+        sidecars.attach(target, 0);
+        target.contador.empezar();
+        try (LineScanner scanner = new LineScanner(in)) {
+            int n = 0;
+            while (scanner.next()) {
+                target.acceptLine(scanner);
+                if (++n == IngestStats.LINEAS_POR_VOLCADO) {
+                    volcar(target);
+                    n = 0;
+                }
+            }
+        } finally {
+            target.contador.parar();
+            target.cachePart = null;
+            target.indexPart = null;
+        }
+    }
+
+    static void parallel(Path logPath, SimAggregator target, SimulationConfig config, int threads,
+                         Sidecars sidecars) throws IOException {
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, threads);
+            if (bounds.length <= 2) {
+                serial(logPath, target, sidecars);
+                return;
+            }
+            long[] ranges = new long[2 * (bounds.length - 1)];
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                ranges[2 * i] = bounds[i];
+                ranges[2 * i + 1] = bounds[i + 1];
+            }
+            readParts(channel, ranges, target, config, threads, sidecars);
+        }
+    }
+
+    /** Lee sólo los tramos {inicio, fin} indicados, en orden, sobre {@code target}. */
+    static void readRanges(Path logPath, SimAggregator target, SimulationConfig config, int threads,
+                           long[] ranges) throws IOException {
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            if (threads > 1) {
+                // El índice junta los bloques vecinos: un rango contiguo llega como un
+                // solo tramo y hay que volver a cortarlo para repartirlo entre los hilos
+                long[] parts = splitRanges(channel, ranges, threads);
+                if (parts.length > 2) {
+                    readParts(channel, parts, target, config, threads, new Sidecars());
+                    return;
+                }
+            }
+            target.contador.empezar();
+            for (int i = 0; i < ranges.length; i += 2) {
+                try (LineScanner scanner = new LineScanner(
+                        new ChannelRangeInputStream(channel, ranges[i], ranges[i + 1]))) {
+                    while (scanner.next()) target.acceptLine(scanner);
+                }
+            }
+            target.contador.parar();
+        }
+    }
+
+    private static void readParts(FileChannel channel, long[] ranges, SimAggregator target,
+                                  SimulationConfig config, int threads, Sidecars sidecars)
+            throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // Ventana deslizante: a lo sumo IN_FLIGHT_PER_THREAD * threads tramos
+            // leyéndose o esperando su turno de merge, no el archivo entero
+            int window = threads * IN_FLIGHT_PER_THREAD;
+            Deque<Future<SimAggregator>> parts = new ArrayDeque<>(window);
+            int next = 0;
+            while (next < ranges.length || !parts.isEmpty()) {
+                while (parts.size() < window && next < ranges.length) {
+                    long from = ranges[next++];
+                    long to = ranges[next++];
+                    // Las partes de caché e índice se reservan acá, en orden de archivo;
+                    // el agregador del tramo se arma recién dentro de la tarea
+                    ColumnarCache.Part cachePart = sidecars.cache != null ? sidecars.cache.newPart() : null;
+                    SparseTimeIndex.Part indexPart = sidecars.index != null ? sidecars.index.newPart(from) : null;
+                    parts.add(pool.submit(() -> readChunk(channel, from, to, target, config, cachePart, indexPart)));
+                }
+                // Se combinan en orden a medida que terminan, liberando cada parcial
+                target.merge(parts.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lectura paralela interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static SimAggregator readChunk(FileChannel channel, long from, long to, SimAggregator target,
+                                           SimulationConfig config, ColumnarCache.Part cachePart,
+                                           SparseTimeIndex.Part indexPart) throws IOException {
+        SimAggregator part = target.newChunk(config);
+        part.cachePart = cachePart;
+        part.indexPart = indexPart;
+        part.contador.empezar();
+        try (LineScanner scanner = new LineScanner(new ChannelRangeInputStream(channel, from, to))) {
+            while (scanner.next()) part.acceptLine(scanner);
+        } finally {
+            if (cachePart != null) cachePart.close();
+        }
+        part.contador.parar();
+        part.cachePart = null;
+        part.indexPart = null;
+        return part;
+    }
+
+    /** Vuelca lo contado hasta ahora sin cortar la medición de asignación del hilo. */
+    private static void volcar(SimAggregator target) {
+        target.contador.parar();
+        target.volcar();
+        target.contador.empezar();
+    }
+
+    /** Caché e índice que se arman durante una lectura completa (cualquiera puede faltar). */
+    static final class Sidecars {
+        ColumnarCache.Builder cache;
+        SparseTimeIndex.Builder index;
+
+        void attach(SimAggregator part, long base) throws IOException {
+            if (cache != null) part.cachePart = cache.newPart();
+            if (index != null) part.indexPart = index.newPart(base);
+        }
+    }
+
+    // ===============================================================
+    // Partición del archivo
+    // ===============================================================
+
+    /** Offsets de inicio de cada tramo más el tamaño del archivo al final. */
+    static long[] chunkBounds(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        return chunkBounds(channel, 0, size, chunkCount(size, threads));
+    }
+
+    /**
+     * Parte los rangos {inicio, fin} con el mismo criterio que el archivo entero:
+     * cada uno recibe tramos alineados a comienzo de línea en proporción a su tamaño.
+     */
+    static long[] splitRanges(FileChannel channel, long[] ranges, int threads) throws IOException {
+        long total = 0;
+        for (int i = 0; i < ranges.length; i += 2) total += ranges[i + 1] - ranges[i];
+        int chunks = chunkCount(total, threads);
+        if (chunks <= 1) return ranges;
+
+        List<Long> out = new ArrayList<>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            long start = ranges[i];
+            long end = ranges[i + 1];
+            int n = (int) Math.max(1, Math.round((double) (end - start) * chunks / total));
+            long[] bounds = chunkBounds(channel, start, end, n);
+            for (int b = 0; b + 1 < bounds.length; b++) {
+                out.add(bounds[b]);
+                out.add(bounds[b + 1]);
+            }
+        }
+
+        long[] parts = new long[out.size()];
+        for (int i = 0; i < parts.length; i++) parts[i] = out.get(i);
+        return parts;
+    }
+
+    private static int chunkCount(long bytes, int threads) {
+        return (int) Math.max(1, Math.min((long) threads * CHUNKS_PER_THREAD, bytes / MIN_CHUNK_BYTES));
+    }
+
+    /** Cortes de [start, end) en {@code chunks} tramos parecidos, alineados a comienzo de línea. */
+    private static long[] chunkBounds(FileChannel channel, long start, long end, int chunks) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        for (int i = 1; i < chunks; i++) {
+            long cut = nextLineStart(channel, start + (end - start) * i / chunks, end);
+            if (cut > bounds.get(bounds.size() - 1) && cut < end) bounds.add(cut);
+        }
+        bounds.add(end);
+
+        long[] out = new long[bounds.size()];
+        for (int i = 0; i < out.length; i++) out[i] = bounds.get(i);
+        return out;
+    }
+
+    /**
+     * Primer comienzo de línea en o después de {@code pos}, sin pasar de {@code size}.
+     * Los cortes son los de LineScanner: "\n", "\r\n" o "\r" sueltos.
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long p = Math.max(0, pos - 1);
+        boolean pendingCR = false;
+        while (p < size) {
+            buf.clear();
+            int n = channel.read(buf, p);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                byte b = buf.get(i);
+                if (pendingCR) return b == '\n' ? p + i + 1 : p + i;
+                if (b == '\n') return p + i + 1;
+                if (b == '\r') pendingCR = true;
+            }
+            p += n;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,149 @@
+package analizador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Varios logs del simulador (rotados sueltos, o uno por unidad) leídos como si
+ * fueran uno solo ordenado por simTimeMs.
+ *
+ * Cada archivo tiene su hilo, que lo corta en lotes y los parsea a columnas
+ * ({@link StagedIngest.SimBatch}) con algunos lotes de ventaja. El hilo que
+ * llama hace un merge de k vías con un heap de cursores, uno por archivo, y
+ * entrega los registros al agregador en orden de simTimeMs; así lastEnergyWh,
+ * los acumulados de tarifa y las transiciones del heater quedan como en un log
+ * único ordenado, sin concatenar ni ordenar nada en disco.
+ *
+ * Dentro de cada archivo se respeta el orden en que vienen. Un registro sin
+ * simTimeMs sale junto al anterior de su archivo; con tiempos iguales gana el
+ * archivo que se pasó primero.
+ */
+final class SimMerge {
+
+    /** Lotes parseados en cola por archivo, además del que recorre el merge. */
+    private static final int BATCHES_AHEAD = 2;
+
+    private SimMerge() { }
+
+    static void ingest(List<Path> paths, SimAggregator target, Opciones opciones) throws IOException {
+        List<Cursor> cursors = new ArrayList<>(paths.size());
+        target.etapa.iniciar();
+        try {
+            for (int i = 0; i < paths.size(); i++) {
+                cursors.add(new Cursor(paths.get(i), i, opciones.rotados, target.etapa));
+            }
+            PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, paths.size()), SimMerge::compare);
+            for (Cursor c : cursors) {
+                if (c.advance()) heap.add(c);
+            }
+
+            while (!heap.isEmpty()) {
+                Cursor c = heap.poll();
+                Cursor next = heap.peek();
+                // Mientras el mismo archivo siga adelante no hace falta tocar el heap:
+                // con rotados que no se solapan el merge es casi una concatenación
+                boolean more;
+                do {
+                    target.accept(c.rec);
+                } while ((more = c.advance()) && (next == null || compare(c, next) <= 0));
+                if (more) heap.add(c);
+            }
+        } finally {
+            for (Cursor c : cursors) c.close();
+            target.volcar();
+            target.etapa.terminar();
+        }
+        for (Cursor c : cursors) target.totalLines += c.lines;
+    }
+
+    private static int compare(Cursor a, Cursor b) {
+        int byTime = Long.compare(a.time, b.time);
+        return byTime != 0 ? byTime : Integer.compare(a.order, b.order);
+    }
+
+    // ===============================================================
+    // Cursor por archivo
+    // ===============================================================
+
+    /** Registro actual de un archivo, con su lector en segundo plano. */
+    private static final class Cursor {
+
+        private static final StagedIngest.SimBatch EOF = new StagedIngest.SimBatch(0);
+
+        final int order;
+        final SimRecord rec = new SimRecord();
+        /** simTimeMs del registro actual, o el del último que lo tenía. */
+        long time = Long.MIN_VALUE;
+        long lines;
+
+        private final Path path;
+        private final boolean rotados;
+        private final IngestStats.Etapa etapa;
+        private final BlockingQueue<StagedIngest.SimBatch> batches = new ArrayBlockingQueue<>(BATCHES_AHEAD);
+        private final Thread thread;
+        private volatile IOException failure;
+        private StagedIngest.SimBatch batch = new StagedIngest.SimBatch(0);
+        private int pos;
+
+        Cursor(Path path, int order, boolean rotados, IngestStats.Etapa etapa) {
+            this.path = path;
+            this.order = order;
+            this.rotados = rotados;
+            this.etapa = etapa;
+            this.thread = new Thread(this::fill, "merge-" + path.getFileName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void fill() {
+            try (InputStream in = LogInput.open(path, rotados)) {
+                StagedIngest.BatchReader reader = new StagedIngest.BatchReader(in);
+                StagedIngest.Batch raw;
+                while ((raw = reader.next()) != null) batches.put(StagedIngest.parseSim(raw));
+            } catch (IOException e) {
+                failure = e;
+            } catch (UncheckedIOException e) {
+                failure = e.getCause();
+            } catch (RuntimeException e) {
+                failure = new IOException("Error leyendo " + path, e);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                batches.put(EOF);
+            } catch (InterruptedException ignore) { }
+        }
+
+        /** Pasa al registro siguiente; false cuando el archivo se terminó. */
+        boolean advance() throws IOException {
+            while (pos == batch.size) {
+                if (batch == EOF) return false;
+                try {
+                    batch = batches.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Merge interrumpido");
+                }
+                pos = 0;
+                lines += batch.lines;
+                etapa.volcar(batch.contador);
+                if (batch == EOF && failure != null) throw failure;
+            }
+            batch.fill(pos++, rec);
+            if (rec.hasSimTime) time = rec.simTimeMs;
+            return true;
+        }
+
+        void close() {
+            thread.interrupt();
+        }
+    }
+}
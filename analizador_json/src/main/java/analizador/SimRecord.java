@@ -0,0 +1,46 @@
+package analizador;
+
+/**
+ * Registro mutable de una línea del simulador.
+ * Se reutiliza entre líneas: {@link SimRecordReader} lo limpia y lo vuelve a llenar,
+ * así que no hay que guardar referencias a él entre lecturas.
+ */
+final class SimRecord {
+
+    int roomId;
+    double tempC;
+    boolean heaterOn;
+    double energyWh;
+    double lowKWh;
+    double highKWh;
+    long simTimeMs;
+
+    // Equivalentes a root.has(...) sobre el árbol JSON
+    boolean hasRoomId;
+    boolean hasTemp;
+    boolean hasEnergyWh;
+    boolean hasLowKWh;
+    boolean hasHighKWh;
+    boolean hasSimTime;
+
+    void clear() {
+        roomId = 0;
+        tempC = 0;
+        heaterOn = false;
+        energyWh = 0;
+        lowKWh = 0;
+        highKWh = 0;
+        simTimeMs = 0;
+        hasRoomId = false;
+        hasTemp = false;
+        hasEnergyWh = false;
+        hasLowKWh = false;
+        hasHighKWh = false;
+        hasSimTime = false;
+    }
+
+    /** Una línea cuenta como registro del simulador si trae T_C y roomId. */
+    boolean isValid() {
+        return hasTemp && hasRoomId;
+    }
+}
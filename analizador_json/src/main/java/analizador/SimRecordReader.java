@@ -0,0 +1,190 @@
+package analizador;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.io.NumberInput;
+
+import java.io.IOException;
+
+/**
+ * Lee registros del simulador con el JsonParser de streaming de Jackson.
+ * Sólo extrae los campos que usan los analizadores y saltea el resto,
+ * sin armar un JsonNode por línea. Las conversiones replican las de
+ * JsonNode.asInt/asDouble/asBoolean/asLong para que el resultado sea el mismo
+ * que con MAPPER.readTree(...).
+ */
+final class SimRecordReader {
+
+    private final JsonFactory factory;
+    private char[] chars = new char[256];
+    private boolean objetoCompleto;
+
+    SimRecordReader() {
+        this(JsonFactory.builder()
+                .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+                .build());
+    }
+
+    SimRecordReader(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    /** Lee el objeto JSON que empieza en {@code json}. Devuelve {@link SimRecord#isValid()}. */
+    boolean read(String json, SimRecord out) throws IOException {
+        return read(json, 0, json.length(), out);
+    }
+
+    /** Lee json[start, end) copiándolo a un buffer reutilizable, sin substring. */
+    boolean read(String json, int start, int end, SimRecord out) throws IOException {
+        int len = end - start;
+        if (chars.length < len) chars = new char[Math.max(len, chars.length * 2)];
+        json.getChars(start, end, chars, 0);
+        try (JsonParser p = factory.createParser(chars, 0, len)) {
+            return read(p, out);
+        }
+    }
+
+    /** Igual que {@link #read(String, SimRecord)} pero directo desde bytes UTF-8. */
+    boolean read(byte[] buf, int off, int len, SimRecord out) throws IOException {
+        try (JsonParser p = factory.createParser(buf, off, len)) {
+            return read(p, out);
+        }
+    }
+
+    /**
+     * Si la última lectura llegó al final del objeto: un false con esto en
+     * true es un registro sin T_C o roomId, no JSON roto.
+     */
+    boolean objetoCompleto() {
+        return objetoCompleto;
+    }
+
+    private boolean read(JsonParser p, SimRecord out) throws IOException {
+        out.clear();
+        objetoCompleto = false;
+        if (p.nextToken() != JsonToken.START_OBJECT) return false;
+
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "roomId":
+                    out.roomId = asInt(p, t);
+                    out.hasRoomId = true;
+                    break;
+                case "T_C":
+                    out.tempC = asDouble(p, t, 0.0);
+                    out.hasTemp = true;
+                    break;
+                case "heaterOn":
+                    out.heaterOn = asBoolean(p, t);
+                    break;
+                case "energy_Wh":
+                    out.hasEnergyWh = isScalarNumber(p, t);
+                    if (out.hasEnergyWh) out.energyWh = asDouble(p, t, 0.0);
+                    break;
+                case "lowKWh":
+                    out.hasLowKWh = isScalarNumber(p, t);
+                    if (out.hasLowKWh) out.lowKWh = asDouble(p, t, 0.0);
+                    break;
+                case "highKWh":
+                    out.hasHighKWh = isScalarNumber(p, t);
+                    if (out.hasHighKWh) out.highKWh = asDouble(p, t, 0.0);
+                    break;
+                case "simTimeMs":
+                    out.simTimeMs = asLong(p, t);
+                    out.hasSimTime = true;
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        // nextFieldName() devuelve null en END_OBJECT; cualquier otra cosa es JSON roto
+        if (p.currentToken() != JsonToken.END_OBJECT) return false;
+        objetoCompleto = true;
+        return out.isValid();
+    }
+
+    // ===============================================================
+    // Conversiones equivalentes a JsonNode.asXxx()
+    // ===============================================================
+    private static int asInt(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:   return (int) p.getLongValue();
+            case VALUE_NUMBER_FLOAT: return (int) p.getDoubleValue();
+            case VALUE_STRING:       return NumberInput.parseAsInt(p.getText(), 0);
+            case VALUE_TRUE:         return 1;
+            case START_OBJECT:
+            case START_ARRAY:        p.skipChildren(); return 0;
+            default:                 return 0;
+        }
+    }
+
+    private static long asLong(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:   return p.getLongValue();
+            case VALUE_NUMBER_FLOAT: return (long) p.getDoubleValue();
+            case VALUE_STRING:       return NumberInput.parseAsLong(p.getText(), 0L);
+            case VALUE_TRUE:         return 1L;
+            case START_OBJECT:
+            case START_ARRAY:        p.skipChildren(); return 0L;
+            default:                 return 0L;
+        }
+    }
+
+    private static double asDouble(JsonParser p, JsonToken t, double def) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT: return p.getDoubleValue();
+            case VALUE_STRING:       return NumberInput.parseAsDouble(p.getText(), def);
+            case VALUE_TRUE:         return 1.0;
+            case VALUE_FALSE:        return 0.0;
+            case START_OBJECT:
+            case START_ARRAY:        p.skipChildren(); return def;
+            default:                 return def;
+        }
+    }
+
+    private static boolean asBoolean(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_TRUE:       return true;
+            case VALUE_NUMBER_INT: return p.getLongValue() != 0;
+            case VALUE_STRING: {
+                String s = p.getText().trim();
+                return "true".equals(s);
+            }
+            case START_OBJECT:
+            case START_ARRAY:      p.skipChildren(); return false;
+            default:               return false;
+        }
+    }
+
+    /**
+     * path(x).asDouble(previo) conserva el valor previo cuando el nodo no es
+     * convertible (null, objeto, texto no numérico); acá lo marcamos como ausente.
+     */
+    private static boolean isScalarNumber(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return true;
+            case VALUE_STRING:
+                return isNumericText(p.getText());
+            case START_OBJECT:
+            case START_ARRAY:
+                p.skipChildren();
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNumericText(String text) {
+        double probe = NumberInput.parseAsDouble(text, Double.NaN);
+        return !Double.isNaN(probe) || text.trim().equalsIgnoreCase("NaN");
+    }
+}
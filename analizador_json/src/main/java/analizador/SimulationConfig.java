@@ -0,0 +1,81 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contenido de simulation_config.json que usan los analizadores:
+ * temperatura esperada y potencia de cada room, y energía máxima del sitio.
+ */
+final class SimulationConfig {
+
+    static final class Room {
+        final int id;
+        final double expectedTemp;
+        final double energyKWh;
+
+        Room(int id, double expectedTemp, double energyKWh) {
+            this.id = id;
+            this.expectedTemp = expectedTemp;
+            this.energyKWh = energyKWh;
+        }
+    }
+
+    final List<Room> rooms;
+    final double maxEnergyKWh;
+    final JsonNode root;
+    private final Map<Integer, Room> byId = new HashMap<>();
+
+    private SimulationConfig(List<Room> rooms, double maxEnergyKWh, JsonNode root) {
+        this.rooms = Collections.unmodifiableList(rooms);
+        this.maxEnergyKWh = maxEnergyKWh;
+        this.root = root;
+        for (Room room : rooms) byId.put(room.id, room);
+    }
+
+    /** Room configurado con ese id, o null. */
+    Room room(int id) {
+        return byId.get(id);
+    }
+
+    static SimulationConfig load(Path configPath, ObjectMapper mapper) throws IOException {
+        JsonNode root = mapper.readTree(configPath.toFile());
+
+        List<Room> rooms = new ArrayList<>();
+        JsonNode units = root.path("units");
+        if (units.isArray()) {
+            for (JsonNode unit : units) {
+                JsonNode room = unit.path("room");
+                rooms.add(new Room(
+                        room.path("id").asInt(),
+                        parseDouble(room.path("expectedTemp").asText("22")),
+                        parseEnergy(room.path("energy").asText("2 kWh"))));
+            }
+        }
+
+        String maxE = root.path("simulacion").path("maxEnergy").asText("0");
+        return new SimulationConfig(rooms, parseEnergy(maxE), root);
+    }
+
+    // Helpers
+    static double parseDouble(String text) {
+        try { return Double.parseDouble(text.replace(",", ".").trim()); }
+        catch (Exception e) { return 0.0; }
+    }
+
+    static double parseEnergy(String energyText) {
+        if (energyText == null) return 0;
+        String clean = energyText.trim().toLowerCase().replace(",", ".");
+        if (clean.endsWith("kwh")) return Double.parseDouble(clean.replace("kwh", "").trim());
+        if (clean.endsWith("wh")) return Double.parseDouble(clean.replace("wh", "").trim()) / 1000.0;
+        return Double.parseDouble(clean);
+    }
+}
@@ -0,0 +1,198 @@
+package analizador;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice disperso del log del simulador, guardado como "&lt;log&gt;.idx": el archivo
+ * se divide en bloques de ~256 KB alineados a comienzo de línea y, por cada uno,
+ * se guarda su offset y el menor y mayor simTimeMs que contiene.
+ *
+ * Una consulta por rango de tiempo lee sólo los bloques cuyo [min, max] se cruza
+ * con el rango, así que el costo depende del tamaño de la ventana y no del archivo.
+ * No hace falta que el log esté ordenado por simTimeMs; si lo está, los bloques
+ * elegidos quedan contiguos.
+ */
+final class SparseTimeIndex {
+
+    private static final int MAGIC = 0x414E4958; // "ANIX"
+    private static final int VERSION = 1;
+    static final long BLOCK_BYTES = 256L << 10;
+
+    private final long sourceSize;
+    private final long[] offset;
+    private final long[] minTime;
+    private final long[] maxTime;
+
+    private SparseTimeIndex(long sourceSize, long[] offset, long[] minTime, long[] maxTime) {
+        this.sourceSize = sourceSize;
+        this.offset = offset;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+    }
+
+    static Path sidecar(Path logPath) {
+        return logPath.resolveSibling(logPath.getFileName() + ".idx");
+    }
+
+    /** Índice del log si existe y corresponde al archivo actual; si no, null. */
+    static SparseTimeIndex open(Path logPath) throws IOException {
+        Path path = sidecar(logPath);
+        if (!Files.exists(path)) return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            long size = in.readLong();
+            long mtime = in.readLong();
+            if (size != Files.size(logPath) || mtime != Files.getLastModifiedTime(logPath).toMillis()) {
+                return null;
+            }
+            int n = in.readInt();
+            long[] offset = new long[n];
+            long[] min = new long[n];
+            long[] max = new long[n];
+            for (int i = 0; i < n; i++) {
+                offset[i] = in.readLong();
+                min[i] = in.readLong();
+                max[i] = in.readLong();
+            }
+            return new SparseTimeIndex(size, offset, min, max);
+        }
+    }
+
+    /**
+     * Tramos de bytes a leer para cubrir [fromMs, toMs), como pares
+     * {inicio, fin} consecutivos. Los bloques vecinos se juntan en un solo tramo.
+     */
+    long[] ranges(long fromMs, long toMs) {
+        long[] out = new long[16];
+        int n = 0;
+        for (int i = 0; i < offset.length; i++) {
+            if (maxTime[i] < fromMs || minTime[i] >= toMs) continue;
+            long start = offset[i];
+            long end = i + 1 < offset.length ? offset[i + 1] : sourceSize;
+            if (n > 0 && out[n - 1] == start) {
+                out[n - 1] = end;
+            } else {
+                if (n + 2 > out.length) out = Arrays.copyOf(out, out.length * 2);
+                out[n++] = start;
+                out[n++] = end;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    int blocks() {
+        return offset.length;
+    }
+
+    // ===============================================================
+    // Construcción
+    // ===============================================================
+
+    /** Junta las partes de cada tramo leído y escribe el índice al terminar. */
+    static final class Builder {
+
+        private final Path logPath;
+        private final long sourceSize;
+        private final long sourceMtime;
+        private final List<Part> parts = new ArrayList<>();
+
+        Builder(Path logPath) throws IOException {
+            this.logPath = logPath;
+            this.sourceSize = Files.size(logPath);
+            this.sourceMtime = Files.getLastModifiedTime(logPath).toMillis();
+        }
+
+        /** Parte para un tramo que empieza en {@code base}; se piden en orden de archivo. */
+        Part newPart(long base) {
+            Part part = new Part(base);
+            parts.add(part);
+            return part;
+        }
+
+        /** Escribe el índice; si el log cambió mientras se leía, no se guarda. */
+        boolean finish() throws IOException {
+            if (Files.size(logPath) != sourceSize
+                    || Files.getLastModifiedTime(logPath).toMillis() != sourceMtime) {
+                return false;
+            }
+            int n = 0;
+            for (Part part : parts) {
+                part.closeBlock();
+                n += part.size;
+            }
+
+            Path target = sidecar(logPath);
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sourceSize);
+                out.writeLong(sourceMtime);
+                out.writeInt(n);
+                for (Part part : parts) {
+                    for (int i = 0; i < part.size; i++) {
+                        out.writeLong(part.entries[i * 3]);
+                        out.writeLong(part.entries[i * 3 + 1]);
+                        out.writeLong(part.entries[i * 3 + 2]);
+                    }
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+    }
+
+    /** Bloques de un tramo: se alimenta con cada línea y cada simTimeMs leídos. */
+    static final class Part {
+
+        private final long base;
+        private long[] entries = new long[3 * 64]; // {offset, min, max} por bloque
+        private int size;
+
+        private long blockStart;
+        private long blockMin = Long.MAX_VALUE;
+        private long blockMax = Long.MIN_VALUE;
+
+        private Part(long base) {
+            this.base = base;
+            this.blockStart = base;
+        }
+
+        /** Comienzo de línea en {@code relOffset} bytes desde el inicio del tramo. */
+        void line(long relOffset) {
+            long offset = base + relOffset;
+            if (offset - blockStart >= BLOCK_BYTES) {
+                closeBlock();
+                blockStart = offset;
+            }
+        }
+
+        void time(long simTimeMs) {
+            if (simTimeMs < blockMin) blockMin = simTimeMs;
+            if (simTimeMs > blockMax) blockMax = simTimeMs;
+        }
+
+        private void closeBlock() {
+            if (3 * (size + 1) > entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+            entries[3 * size] = blockStart;
+            entries[3 * size + 1] = blockMin;
+            entries[3 * size + 2] = blockMax;
+            size++;
+            blockMin = Long.MAX_VALUE;
+            blockMax = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package analizador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Modo --pipeline: el log del simulador y el access log se leen a la vez, cada
+ * uno en tres etapas unidas por colas acotadas de lotes.
+ * <ol>
+ *   <li>Un lector por archivo corta lotes de ~{@link #BATCH_BYTES} alineados a
+ *       fin de línea.</li>
+ *   <li>Workers compartidos aplican los prefiltros y parsean cada lote a
+ *       columnas primitivas, en cualquier orden.</li>
+ *   <li>Un agregador por archivo toma los lotes en el orden del archivo: el del
+ *       simulador es el único que toca los rooms; el del access log
+ *       deduplica y cuenta por room, y esos conteos se vuelcan al final.</li>
+ * </ol>
+ * Como el lector encola el Future de cada lote, la cola de Futures mantiene el
+ * orden y a la vez frena al lector si el agregador se atrasa. El estado final
+ * es el mismo que el de la lectura serial.
+ *
+ * Con --cache o --from/--to el log del simulador se lee como siempre
+ * ({@link SimIngest}), y con varios logs del simulador se mezclan por
+ * simTimeMs ({@link SimMerge}); en los dos casos, en paralelo con el access log.
+ */
+final class StagedIngest {
+
+    static final int BATCH_BYTES = 1 << 20;
+    /** Lotes en vuelo por worker, entre los dos archivos. */
+    private static final int BATCHES_PER_WORKER = 2;
+
+    private StagedIngest() { }
+
+    /** {@code http} puede ser null: entonces el access log no se lee. */
+    static void ingest(List<Path> logPaths, Path httpPath, SimAggregator sim, SimulationConfig config,
+                       HttpInteractions http, Opciones opciones) throws IOException {
+        int workers = Math.max(1, opciones.pipelineWorkers);
+        ExecutorService parsers = Executors.newFixedThreadPool(workers);
+        ExecutorService stages = Executors.newCachedThreadPool();
+        int capacity = workers * BATCHES_PER_WORKER;
+        Map<Integer, Integer> interactions = new HashMap<>();
+        try {
+            Path logPath = logPaths.get(0);
+            Future<?> simDone;
+            if (logPaths.size() > 1) {
+                simDone = stages.submit(() -> {
+                    SimMerge.ingest(logPaths, sim, opciones);
+                    return null;
+                });
+            } else if (opciones.cache || opciones.ranged()) {
+                simDone = stages.submit(() -> {
+                    SimIngest.ingest(logPath, sim, config, opciones);
+                    return null;
+                });
+            } else {
+                sim.etapa.iniciar();
+                simDone = pipe(stages, parsers, logPath, opciones.rotados, capacity, StagedIngest::parseSim, batch -> {
+                    SimRecord rec = new SimRecord();
+                    sim.totalLines += batch.lines;
+                    sim.etapa.volcar(batch.contador);
+                    for (int i = 0; i < batch.size; i++) {
+                        batch.fill(i, rec);
+                        sim.accept(rec);
+                    }
+                });
+            }
+
+            Future<?> httpDone = null;
+            if (http != null && Files.exists(httpPath)) {
+                http.etapa.iniciar();
+                httpDone = pipe(stages, parsers, httpPath, opciones.rotados, capacity, StagedIngest::parseHttp, batch -> {
+                    http.etapa.volcar(batch.contador);
+                    for (int i = 0; i < batch.size; i++) {
+                        if (http.dedup.firstSeen(batch.rooms[i], batch.timestamps[i])) {
+                            interactions.merge(batch.rooms[i], 1, Integer::sum);
+                            http.contador.registros++;
+                        } else {
+                            http.contador.descartar(IngestStats.Motivo.DUPLICADO);
+                        }
+                    }
+                });
+            }
+
+            await(simDone);
+            if (httpDone != null) await(httpDone);
+        } finally {
+            // Los agregadores ya no corren: sus contadores se pueden volcar desde acá
+            sim.volcar();
+            sim.etapa.terminar();
+            if (http != null) {
+                http.etapa.volcar(http.contador);
+                http.etapa.terminar();
+            }
+            stages.shutdownNow();
+            parsers.shutdownNow();
+        }
+
+        // Los dos agregadores terminaron: ya se pueden tocar los rooms desde acá
+        interactions.forEach((roomId, n) -> sim.room(roomId).userInteractions += n);
+    }
+
+    private static void await(Future<?> stage) throws IOException {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lectura en pipeline interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof ExecutionException && cause.getCause() != null) cause = cause.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    // ===============================================================
+    // Etapas
+    // ===============================================================
+
+    /**
+     * Arranca el lector y el agregador de un archivo. Devuelve el Future del
+     * agregador, que termina cuando se procesó el último lote.
+     */
+    private static <T> Future<?> pipe(ExecutorService stages, ExecutorService parsers, Path path, boolean rotados,
+                                      int capacity, Function<Batch, T> parse, Consumer<T> aggregate) {
+        BlockingQueue<Future<T>> queue = new ArrayBlockingQueue<>(capacity);
+        Future<?> reader = stages.submit(() -> {
+            try (InputStream in = LogInput.open(path, rotados)) {
+                BatchReader batches = new BatchReader(in);
+                Batch batch;
+                while ((batch = batches.next()) != null) {
+                    Batch b = batch;
+                    queue.put(parsers.submit(() -> parse.apply(b)));
+                }
+                queue.put(CompletableFuture.completedFuture(null));
+            } catch (IOException | RuntimeException e) {
+                queue.put(CompletableFuture.failedFuture(e));
+            }
+            return null;
+        });
+        return stages.submit(() -> {
+            try {
+                T parsed;
+                while ((parsed = queue.take().get()) != null) aggregate.accept(parsed);
+            } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                reader.cancel(true);
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    static SimBatch parseSim(Batch batch) {
+        SimRecordReader reader = new SimRecordReader();
+        SimRecord rec = new SimRecord();
+        SimBatch out = new SimBatch(batch.length / 64 + 16);
+        IngestStats.Contador c = out.contador;
+        c.empezar();
+        c.bytes = batch.length;
+        LineScanner line = LineScanner.wrap(batch.data, batch.length);
+        try {
+            while (line.next()) {
+                out.lines++;
+                IngestStats.Motivo descarte = SimAggregator.parse(line, reader, rec);
+                if (descarte == null) {
+                    out.add(rec);
+                } else {
+                    c.descartar(descarte);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        c.lineas = out.lines;
+        c.parar();
+        return out;
+    }
+
+    private static HttpBatch parseHttp(Batch batch) {
+        HttpRecordReader reader = new HttpRecordReader();
+        HttpRecord rec = new HttpRecord();
+        HttpBatch out = new HttpBatch(batch.length / 256 + 16);
+        IngestStats.Contador c = out.contador;
+        c.empezar();
+        c.bytes = batch.length;
+        LineScanner line = LineScanner.wrap(batch.data, batch.length);
+        try {
+            while (line.next()) {
+                c.lineas++;
+                IngestStats.Motivo descarte = HttpInteractions.parse(line, reader, rec);
+                if (descarte == null) {
+                    out.add(rec.roomId, rec.timestamp);
+                } else {
+                    c.descartar(descarte);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        c.parar();
+        return out;
+    }
+
+    // ===============================================================
+    // Lotes
+    // ===============================================================
+
+    /** Bytes crudos de líneas completas. */
+    static final class Batch {
+        final byte[] data;
+        final int length;
+
+        Batch(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /** Corta un archivo en lotes; lo que sigue al último corte pasa al lote siguiente. */
+    static final class BatchReader {
+        private final InputStream in;
+        private byte[] carry = new byte[0];
+
+        BatchReader(InputStream in) {
+            this.in = in;
+        }
+
+        /** Próximo lote, o null al final del archivo. */
+        Batch next() throws IOException {
+            int carried = carry.length;
+            byte[] buf = new byte[Math.max(BATCH_BYTES, carried * 2)];
+            System.arraycopy(carry, 0, buf, 0, carried);
+            carry = new byte[0];
+
+            int len = carried;
+            while (true) {
+                len += in.readNBytes(buf, len, buf.length - len);
+                if (len < buf.length) {
+                    // Fin del archivo: va todo, termine o no en corte de línea
+                    return len == 0 ? null : new Batch(buf, len);
+                }
+                int cut = lastCut(buf, len);
+                if (cut > 0) {
+                    carry = Arrays.copyOfRange(buf, cut, len);
+                    return new Batch(buf, cut);
+                }
+                // Una sola línea más larga que el lote: se agranda
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+        }
+
+        /**
+         * Fin del último corte de línea. Un '\r' en el último byte no cuenta: el
+         * '\n' que puede seguirle es parte del mismo corte.
+         */
+        private static int lastCut(byte[] buf, int len) {
+            for (int i = len - 1; i >= 0; i--) {
+                if (buf[i] == '\n' || (buf[i] == '\r' && i < len - 1)) return i + 1;
+            }
+            return -1;
+        }
+    }
+
+    /** Registros válidos de un lote del simulador, en columnas. */
+    static final class SimBatch {
+        private static final int HEATER_ON = 1, HAS_SIM_TIME = 1 << 1, HAS_ENERGY = 1 << 2,
+                HAS_LOW = 1 << 3, HAS_HIGH = 1 << 4;
+
+        long lines;
+        int size;
+        /** Líneas, bytes y descartes del parseo de este lote. */
+        final IngestStats.Contador contador = new IngestStats.Contador();
+        private long[] time;
+        private int[] room;
+        private double[] temp;
+        private double[] energy;
+        private double[] low;
+        private double[] high;
+        private byte[] flags;
+
+        SimBatch(int capacity) {
+            time = new long[capacity];
+            room = new int[capacity];
+            temp = new double[capacity];
+            energy = new double[capacity];
+            low = new double[capacity];
+            high = new double[capacity];
+            flags = new byte[capacity];
+        }
+
+        void add(SimRecord rec) {
+            if (size == time.length) grow();
+            time[size] = rec.simTimeMs;
+            room[size] = rec.roomId;
+            temp[size] = rec.tempC;
+            energy[size] = rec.energyWh;
+            low[size] = rec.lowKWh;
+            high[size] = rec.highKWh;
+            flags[size] = (byte) ((rec.heaterOn ? HEATER_ON : 0)
+                    | (rec.hasSimTime ? HAS_SIM_TIME : 0)
+                    | (rec.hasEnergyWh ? HAS_ENERGY : 0)
+                    | (rec.hasLowKWh ? HAS_LOW : 0)
+                    | (rec.hasHighKWh ? HAS_HIGH : 0));
+            size++;
+        }
+
+        /** Vuelca el registro {@code i} en {@code rec}, como lo dejaría SimRecordReader. */
+        void fill(int i, SimRecord rec) {
+            int f = flags[i];
+            rec.simTimeMs = time[i];
+            rec.roomId = room[i];
+            rec.tempC = temp[i];
+            rec.energyWh = energy[i];
+            rec.lowKWh = low[i];
+            rec.highKWh = high[i];
+            rec.heaterOn = (f & HEATER_ON) != 0;
+            rec.hasSimTime = (f & HAS_SIM_TIME) != 0;
+            rec.hasEnergyWh = (f & HAS_ENERGY) != 0;
+            rec.hasLowKWh = (f & HAS_LOW) != 0;
+            rec.hasHighKWh = (f & HAS_HIGH) != 0;
+            rec.hasRoomId = true;
+            rec.hasTemp = true;
+        }
+
+        private void grow() {
+            int n = time.length * 2;
+            time = Arrays.copyOf(time, n);
+            room = Arrays.copyOf(room, n);
+            temp = Arrays.copyOf(temp, n);
+            energy = Arrays.copyOf(energy, n);
+            low = Arrays.copyOf(low, n);
+            high = Arrays.copyOf(high, n);
+            flags = Arrays.copyOf(flags, n);
+        }
+    }
+
+    /** POST /switch/ de un lote del access log, todavía sin deduplicar. */
+    static final class HttpBatch {
+        int size;
+        final IngestStats.Contador contador = new IngestStats.Contador();
+        int[] rooms;
+        String[] timestamps;
+
+        HttpBatch(int capacity) {
+            rooms = new int[capacity];
+            timestamps = new String[capacity];
+        }
+
+        void add(int roomId, String timestamp) {
+            if (size == rooms.length) {
+                rooms = Arrays.copyOf(rooms, size * 2);
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+            }
+            rooms[size] = roomId;
+            timestamps[size] = timestamp;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Deduplicación de los POST /switch/{id} por (roomId, @timestamp).
+ *
+ * La clave es un long que empaqueta el room y el @timestamp ISO-8601 pasado a
+ * epoch ms, y va a un {@link LongHashSet}: unos 16 bytes por request en vez de
+ * un String con su HashMap.Node. El empaquetado es inyectivo, así que no hay
+ * falsos duplicados. Los pocos casos que no entran en el long (timestamps con
+ * precisión menor al ms, formatos que no son ISO, rooms fuera de rango) se
+ * deduplican aparte por su texto, igual de exactos.
+ *
+ * Ojo: antes la clave era el texto "path|timestamp"; ahora es el instante y el
+ * room ya parseado. Dos escrituras del mismo instante ("...:00Z", "...:00.000Z",
+ * "...:00+00:00") o del mismo room ("/switch/012" y "/switch/12") cuentan como
+ * un solo request.
+ *
+ * Con {@code windowMs > 0} se olvidan las claves más viejas que esa ventana,
+ * contando desde el @timestamp más nuevo visto: hay dos generaciones que rotan
+ * cada {@code windowMs}, así que una clave vive entre una y dos ventanas. Un
+ * duplicado dentro de la ventana siempre se detecta; la memoria queda acotada
+ * por los requests de dos ventanas. Supone el access log más o menos ordenado
+ * por tiempo, como lo escribe el servidor.
+ */
+final class SwitchDedup {
+
+    /** 20 bits de room y 44 de epoch ms con signo: ±278 años alrededor de 1970. */
+    private static final int ROOM_BITS = 20;
+    private static final long MAX_ROOM = (1L << ROOM_BITS) - 1;
+    private static final long EPOCH_LIMIT = 1L << (63 - ROOM_BITS);
+
+    /** Marca de timestamp que no se pudo pasar a epoch ms exacto. */
+    static final long NO_EPOCH = Long.MIN_VALUE;
+
+    private final long windowMs;
+
+    private Generation current = new Generation();
+    private Generation previous = new Generation();
+    private long generationStart = NO_EPOCH;
+    private long latest = NO_EPOCH;
+
+    SwitchDedup() {
+        this(0);
+    }
+
+    /** {@code windowMs <= 0}: sin ventana, recuerda todas las claves. */
+    SwitchDedup(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    /** true la primera vez que aparece (roomId, timestamp) dentro de la ventana. */
+    boolean firstSeen(int roomId, String timestamp) {
+        long epochMs = epochMillis(timestamp);
+        if (epochMs != NO_EPOCH) advance(epochMs);
+
+        if (epochMs != NO_EPOCH && roomId >= 0 && roomId <= MAX_ROOM
+                && epochMs >= -EPOCH_LIMIT && epochMs < EPOCH_LIMIT) {
+            long key = (epochMs << ROOM_BITS) | roomId;
+            if (previous.keys.contains(key)) return false;
+            return current.keys.add(key);
+        }
+
+        String key = roomId + "|" + timestamp;
+        if (previous.others != null && previous.others.contains(key)) return false;
+        return current.others().add(key);
+    }
+
+    /** Claves distintas que se están recordando (en ambas generaciones). */
+    long size() {
+        return current.size() + previous.size();
+    }
+
+    private void advance(long epochMs) {
+        if (latest != NO_EPOCH && epochMs <= latest) return;
+        latest = epochMs;
+        if (windowMs == 0) return;
+        if (generationStart == NO_EPOCH) {
+            generationStart = epochMs;
+        } else if (epochMs - generationStart >= windowMs) {
+            Generation recycled = previous;
+            recycled.clear();
+            previous = current;
+            current = recycled;
+            // Salto más largo que dos ventanas: lo anterior ya quedó fuera
+            if (epochMs - generationStart >= 2 * windowMs) previous.clear();
+            generationStart = epochMs;
+        }
+    }
+
+    // ===============================================================
+    // @timestamp ISO-8601 → epoch ms
+    // ===============================================================
+
+    /**
+     * "yyyy-MM-ddTHH:mm:ss[.fff]" seguido de "Z" o "±HH:MM", sin pasar por
+     * java.time. {@link #NO_EPOCH} si no tiene esa forma, si la fecha no existe
+     * o si trae dígitos distintos de cero por debajo del milisegundo.
+     */
+    static long epochMillis(String ts) {
+        int n = ts.length();
+        if (n < 20 || ts.charAt(4) != '-' || ts.charAt(7) != '-'
+                || (ts.charAt(10) != 'T' && ts.charAt(10) != ' ')
+                || ts.charAt(13) != ':' || ts.charAt(16) != ':') {
+            return NO_EPOCH;
+        }
+        int year = digits(ts, 0, 4), month = digits(ts, 5, 2), day = digits(ts, 8, 2);
+        int hour = digits(ts, 11, 2), minute = digits(ts, 14, 2), second = digits(ts, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NO_EPOCH;
+        }
+
+        int i = 19;
+        int millis = 0;
+        if (ts.charAt(i) == '.') {
+            int start = ++i;
+            while (i < n && ts.charAt(i) >= '0' && ts.charAt(i) <= '9') {
+                int d = ts.charAt(i) - '0';
+                if (i - start < 3) millis = millis * 10 + d;
+                else if (d != 0) return NO_EPOCH;
+                i++;
+            }
+            if (i == start) return NO_EPOCH;
+            for (int k = i - start; k < 3; k++) millis *= 10;
+        }
+
+        int offsetMinutes;
+        if (i == n - 1 && ts.charAt(i) == 'Z') {
+            offsetMinutes = 0;
+        } else if (i == n - 6 && (ts.charAt(i) == '+' || ts.charAt(i) == '-') && ts.charAt(i + 3) == ':') {
+            int oh = digits(ts, i + 1, 2), om = digits(ts, i + 4, 2);
+            if (oh < 0 || oh > 18 || om < 0 || om > 59) return NO_EPOCH;
+            offsetMinutes = (oh * 60 + om) * (ts.charAt(i) == '-' ? -1 : 1);
+        } else {
+            return NO_EPOCH;
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86_400L
+                + hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+        return seconds * 1000 + millis;
+    }
+
+    private static int digits(String s, int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /** Días desde 1970-01-01 en el calendario gregoriano proléptico. */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468;
+    }
+
+    // ===============================================================
+    // Checkpoint
+    // ===============================================================
+    void write(DataOutput out) throws IOException {
+        out.writeLong(generationStart);
+        out.writeLong(latest);
+        current.write(out);
+        previous.write(out);
+    }
+
+    void read(DataInput in) throws IOException {
+        generationStart = in.readLong();
+        latest = in.readLong();
+        current.read(in);
+        previous.read(in);
+    }
+
+    /** Claves de una ventana: las empaquetadas y, si hubo, las de texto. */
+    private static final class Generation {
+        final LongHashSet keys = new LongHashSet();
+        Set<String> others;
+
+        Set<String> others() {
+            if (others == null) others = new HashSet<>();
+            return others;
+        }
+
+        long size() {
+            return keys.size() + (others == null ? 0 : others.size());
+        }
+
+        void clear() {
+            keys.clear();
+            others = null;
+        }
+
+        void write(DataOutput out) throws IOException {
+            keys.write(out);
+            out.writeInt(others == null ? 0 : others.size());
+            if (others != null) {
+                for (String key : others) out.writeUTF(key);
+            }
+        }
+
+        void read(DataInput in) throws IOException {
+            keys.read(in);
+            others = null;
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) others().add(in.readUTF());
+        }
+    }
+}
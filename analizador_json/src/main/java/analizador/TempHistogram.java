@@ -0,0 +1,111 @@
+package analizador;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Histograma de temperaturas de bins fijos, para percentiles por room.
+ *
+ * Los bins son de {@link #BIN_WIDTH} °C sobre [{@link #MIN_TEMP}, {@link #MAX_TEMP});
+ * los valores fuera de rango caen en el primer o el último bin. Sólo se guarda
+ * la ventana de bins que realmente se usó, que para un room suele ser de unos
+ * pocos grados, así que la memoria no depende del largo del log.
+ * Dos histogramas se combinan sumando bins, en cualquier orden.
+ */
+final class TempHistogram {
+
+    static final double MIN_TEMP = -50.0;
+    static final double MAX_TEMP = 100.0;
+    static final double BIN_WIDTH = 0.05;
+    private static final int BINS = (int) Math.round((MAX_TEMP - MIN_TEMP) / BIN_WIDTH);
+    private static final int SLACK = 16;
+
+    private int[] counts;   // counts[i] es el bin global (base + i)
+    private int base;
+    private long total;
+
+    void add(double temp) {
+        if (Double.isNaN(temp)) return;
+        add(binOf(temp), 1);
+    }
+
+    void merge(TempHistogram other) {
+        if (other.counts == null) return;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) add(other.base + i, other.counts[i]);
+        }
+    }
+
+    long count() {
+        return total;
+    }
+
+    /**
+     * Percentil aproximado (q en [0, 1]), interpolando dentro del bin. El error
+     * es de a lo sumo un bin; min y max acotan el resultado a valores observados.
+     */
+    double quantile(double q, double min, double max) {
+        if (total == 0) return Double.NaN;
+        double rank = q * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            int c = counts[i];
+            if (c == 0) continue;
+            if (seen + c >= rank) {
+                double lo = MIN_TEMP + (base + i) * BIN_WIDTH;
+                double value = lo + BIN_WIDTH * ((rank - seen) / c);
+                return Math.max(min, Math.min(max, value));
+            }
+            seen += c;
+        }
+        return max;
+    }
+
+    // ===============================================================
+    // Helpers
+    // ===============================================================
+    private static int binOf(double temp) {
+        int bin = (int) Math.floor((temp - MIN_TEMP) / BIN_WIDTH);
+        if (bin < 0) return 0;
+        if (bin >= BINS) return BINS - 1;
+        return bin;
+    }
+
+    private void add(int bin, int n) {
+        if (counts == null) {
+            base = Math.max(0, bin - SLACK);
+            counts = new int[Math.min(BINS, bin + SLACK + 1) - base];
+        } else if (bin < base || bin >= base + counts.length) {
+            grow(bin);
+        }
+        counts[bin - base] += n;
+        total += n;
+    }
+
+    private void grow(int bin) {
+        int from = Math.max(0, Math.min(base, bin - SLACK));
+        int to = Math.min(BINS, Math.max(base + counts.length, bin + SLACK + 1));
+        int[] bigger = new int[to - from];
+        System.arraycopy(counts, 0, bigger, base - from, counts.length);
+        counts = bigger;
+        base = from;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(total);
+        out.writeInt(base);
+        out.writeInt(counts == null ? 0 : counts.length);
+        if (counts != null) {
+            for (int c : counts) out.writeInt(c);
+        }
+    }
+
+    void read(DataInput in) throws IOException {
+        total = in.readLong();
+        base = in.readInt();
+        int n = in.readInt();
+        counts = n == 0 ? null : new int[n];
+        for (int i = 0; i < n; i++) counts[i] = in.readInt();
+    }
+}
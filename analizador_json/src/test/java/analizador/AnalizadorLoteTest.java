@@ -0,0 +1,70 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AnalizadorLoteTest {
+
+    @TempDir
+    Path dir;
+
+    /** Carpetas con el mismo nombre bajo padres distintos, y sim-logs que se llaman igual. */
+    @Test
+    void nombresDistintosPorCorrida() throws IOException {
+        corrida("lote1/run");
+        corrida("lote2/run");
+        corrida("otra/Run");
+        Path manifiesto = Files.write(dir.resolve("corridas.txt"), List.of(
+                "lote1/run",
+                "lote2/run",
+                "lote1/run/simulator.json.log\tlote1/run/simulation_config.json\tx.log",
+                "lote2/run/simulator.json.log\tlote2/run/simulation_config.json\tx.log",
+                "otra/Run/simulator.json.log\totra/Run/simulation_config.json\tx.log"));
+
+        // Cada triple apunta al mismo sim-log que una carpeta de arriba: se repite la corrida
+        assertThrows(IllegalArgumentException.class, () -> AnalizadorLote.descubrir(manifiesto));
+
+        Files.write(manifiesto, List.of(
+                "lote1/run",
+                "lote2/run",
+                "otra/Run/simulator.json.log\totra/Run/simulation_config.json\tx.log",
+                "lote3/SIMULATOR.json.log\totra/Run/simulation_config.json\tx.log",
+                "comparacion.json.log\totra/Run/simulation_config.json\tx.log"));
+        assertEquals(List.of("lote1_run", "lote2_run", "simulator", "SIMULATOR-2", "comparacion-2"),
+                nombres(AnalizadorLote.descubrir(manifiesto)));
+    }
+
+    @Test
+    void mismaCarpetaDosVecesEsError() throws IOException {
+        corrida("run");
+        Path manifiesto = Files.write(dir.resolve("corridas.txt"), List.of("run", "./run"));
+        assertThrows(IllegalArgumentException.class, () -> AnalizadorLote.descubrir(manifiesto));
+    }
+
+    @Test
+    void subcarpetasDeUnDirectorio() throws IOException {
+        corrida("b");
+        corrida("a");
+        assertEquals(List.of("a", "b"), nombres(AnalizadorLote.descubrir(dir)));
+    }
+
+    private void corrida(String path) throws IOException {
+        Path run = Files.createDirectories(dir.resolve(path));
+        Files.writeString(run.resolve(AnalizadorLote.CONFIG), "{}");
+    }
+
+    private static List<String> nombres(List<AnalizadorLote.Corrida> corridas) {
+        List<String> out = new ArrayList<>();
+        for (AnalizadorLote.Corrida c : corridas) out.add(c.nombre);
+        return out;
+    }
+}
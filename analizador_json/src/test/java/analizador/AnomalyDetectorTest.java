@@ -0,0 +1,121 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnomalyDetectorTest {
+
+    private static final String CONFIG = "{\"units\":["
+            + "{\"room\":{\"id\":1,\"expectedTemp\":\"21\",\"energy\":\"2 kWh\"}},"
+            + "{\"room\":{\"id\":2,\"expectedTemp\":\"21\",\"energy\":\"2 kWh\"}}],"
+            + "\"simulacion\":{\"maxEnergy\":\"3 kWh\"},\"alertas\":[%s]}";
+    private static final String CARGA_ALTA = "{\"regla\":\"carga-alta\",\"duracion\":\"0\"}";
+
+    @TempDir
+    Path dir;
+
+    private final SimRecord rec = new SimRecord();
+
+    /** Los dos heaters se encienden en el último instante del log: la alerta sale con cerrar(). */
+    @Test
+    void cerrarEvaluaElUltimoInstante() throws IOException {
+        AnomalyDetector d = detector(CARGA_ALTA);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        d.out = new PrintStream(buf, true, StandardCharsets.UTF_8);
+
+        registro(d, 1, false, 0);
+        registro(d, 2, false, 0);
+        registro(d, 1, true, 1_000);
+        registro(d, 2, true, 1_000);
+        assertEquals(0, d.emitidas);
+
+        d.cerrar();
+        assertEquals(1, d.emitidas);
+        String evento = buf.toString(StandardCharsets.UTF_8);
+        assertTrue(evento.contains("\"regla\":\"carga-alta\",\"estado\":\"activa\",\"simTimeMs\":1000"), evento);
+
+        // Sin registros nuevos no hay nada más que evaluar
+        d.cerrar();
+        assertEquals(1, d.emitidas);
+    }
+
+    @Test
+    void heaterSinEfecto() throws IOException {
+        AnomalyDetector d = detector("{\"regla\":\"heater-sin-efecto\",\"duracion\":\"10s\",\"caida\":\"0.5\"}");
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        d.out = new PrintStream(buf, true, StandardCharsets.UTF_8);
+
+        // Enfría con el heater encendido: salta a los 10 s, cuando ya bajó 0.5 °C
+        double[] temps = {21.0, 20.8, 20.5, 20.4, 20.2};
+        for (int i = 0; i < temps.length; i++) registro(d, 1, true, temps[i], i * 5_000L);
+        assertEquals(1, d.emitidas);
+        // Vuelve a pasar la temperatura del comienzo: se resuelve
+        registro(d, 1, true, 21.1, 25_000);
+        assertEquals(2, d.emitidas);
+
+        String[] eventos = buf.toString(StandardCharsets.UTF_8).split("\\R");
+        assertTrue(eventos[0].contains("\"estado\":\"activa\",\"simTimeMs\":10000,\"desdeMs\":0"), eventos[0]);
+        assertTrue(eventos[1].contains("\"estado\":\"resuelta\",\"simTimeMs\":25000"), eventos[1]);
+    }
+
+    @Test
+    void eventosQueNoSePuedenEscribirSeCuentan() throws IOException {
+        AnomalyDetector d = detector(CARGA_ALTA);
+        d.out = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disco lleno");
+            }
+        }, true, StandardCharsets.UTF_8);
+
+        PrintStream err = System.err;
+        ByteArrayOutputStream aviso = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(aviso, true, StandardCharsets.UTF_8));
+        try {
+            registro(d, 1, true, 0);
+            registro(d, 2, true, 0);
+            d.cerrar();
+            registro(d, 1, false, 1_000);
+            d.cerrar();
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals(0, d.emitidas);
+        assertEquals(2, d.perdidas);
+        // Un solo aviso, no uno por evento
+        assertEquals(1, aviso.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    private AnomalyDetector detector(String regla) throws IOException {
+        Path config = Files.writeString(dir.resolve("simulation_config.json"), String.format(CONFIG, regla));
+        return AnomalyDetector.fromConfig(SimulationConfig.load(config, new ObjectMapper()));
+    }
+
+    private void registro(AnomalyDetector d, int roomId, boolean heaterOn, long simTimeMs) {
+        registro(d, roomId, heaterOn, 21, simTimeMs);
+    }
+
+    private void registro(AnomalyDetector d, int roomId, boolean heaterOn, double tempC, long simTimeMs) {
+        rec.clear();
+        rec.roomId = roomId;
+        rec.hasRoomId = true;
+        rec.tempC = tempC;
+        rec.hasTemp = true;
+        rec.heaterOn = heaterOn;
+        rec.simTimeMs = simTimeMs;
+        rec.hasSimTime = true;
+        d.accept(rec);
+    }
+}
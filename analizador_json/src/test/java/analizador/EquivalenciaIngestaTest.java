@@ -0,0 +1,335 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Todos los caminos de ingesta tienen que dar, byte a byte, el mismo reporte
+ * que la lectura serial del mismo log.
+ */
+class EquivalenciaIngestaTest {
+
+    @TempDir
+    static Path dir;
+    @TempDir
+    Path tmp;
+    static Path config;
+    static Path simLog;
+    static Path httpLog;
+    static String serial;
+    static final int METRICAS = Metrica.mask(Metrica.ANALIZADOR);
+
+    @BeforeAll
+    static void generar() throws IOException {
+        GeneradorLogs.Parametros p = new GeneradorLogs.Parametros();
+        // Unos 18 MB: alcanza para que --parallel=4 lo corte en cuatro tramos
+        p.rooms = 30;
+        p.ticks = 4_000;
+        GeneradorLogs.generar(dir, p);
+        config = dir.resolve(GeneradorLogs.CONFIG);
+        simLog = dir.resolve(GeneradorLogs.SIM_LOG);
+        httpLog = dir.resolve(GeneradorLogs.HTTP_LOG);
+        serial = reporte(simLog);
+    }
+
+    @Test
+    void serialTieneTodosLosRooms() {
+        assertTrue(serial.contains(" procesadas: "), serial);
+        assertTrue(serial.contains("Room 1:"), serial);
+        assertTrue(serial.contains("Room 30:"), serial);
+    }
+
+    @Test
+    void paralelo() {
+        assertEquals(serial, reporte(simLog, "--parallel=4"));
+    }
+
+    /** Los dos logs a la vez, con parseo repartido entre workers. */
+    @Test
+    void pipeline() throws IOException {
+        assertEquals(serial, reporte(simLog, "--pipeline=3"));
+        // Con --cache el log del simulador va por SimIngest, a la par del access log
+        Path log = Files.copy(simLog, tmp.resolve("sim.log"));
+        assertEquals(serial, reporte(log, "--pipeline=3", "--cache"));
+        assertEquals(serial, reporte(log, "--pipeline=3", "--cache"));
+    }
+
+    /** gzip con dos miembros concatenados, y la primera mitad como rotado comprimido. */
+    @Test
+    void gzipYRotados() throws IOException {
+        byte[] bytes = Files.readAllBytes(simLog);
+        int mitad = corteDeLinea(bytes, bytes.length / 2);
+
+        Path gz = tmp.resolve("sim.log.gz");
+        Files.write(gz, gzip(Arrays.copyOf(bytes, mitad)));
+        Files.write(gz, gzip(Arrays.copyOfRange(bytes, mitad, bytes.length)), StandardOpenOption.APPEND);
+        assertEquals(serial, reporte(gz));
+        assertEquals(serial, reporte(gz, "--parallel=4"));
+
+        Path actual = tmp.resolve("rot.log");
+        Files.write(tmp.resolve("rot.log.1.gz"), gzip(Arrays.copyOf(bytes, mitad)));
+        Files.write(actual, Arrays.copyOfRange(bytes, mitad, bytes.length));
+        assertEquals(serial, reporte(actual, "--rotados"));
+    }
+
+    /**
+     * El log repartido en dos por paridad del room: mezclados por simTimeMs,
+     * cada room ve sus registros en el mismo orden que en el original.
+     */
+    @Test
+    void dosLogsMezclados() throws IOException {
+        Pattern room = Pattern.compile("\"roomId\":(\\d+)");
+        List<String> impares = new ArrayList<>();
+        List<String> resto = new ArrayList<>();
+        for (String line : Files.readAllLines(simLog, StandardCharsets.UTF_8)) {
+            Matcher m = room.matcher(line);
+            boolean impar = m.find() && Integer.parseInt(m.group(1)) % 2 == 1;
+            (impar ? impares : resto).add(line);
+        }
+        Path a = Files.write(tmp.resolve("sim-a.log"), impares, StandardCharsets.UTF_8);
+        Path b = Files.write(tmp.resolve("sim-b.log"), resto, StandardCharsets.UTF_8);
+
+        assertEquals(serial, reporte(a + "," + b));
+        assertEquals(serial, reporte(tmp.resolve("sim-*.log").toString(), "--pipeline=3"));
+    }
+
+    /**
+     * --join: el reporte no cambia, hay una fila por cada interacción que cuenta
+     * el reporte, y el CSV es el mismo con el log comprimido o rotado.
+     */
+    @Test
+    void cruceDeInteracciones() throws IOException {
+        Path plano = tmp.resolve("plano.csv");
+        assertTrue(reporte(simLog, "--join=" + plano).startsWith(serial));
+
+        Map<String, Integer> porRoom = new HashMap<>();
+        Matcher m = Pattern.compile("Room (\\d+):[^R]*?Interacciones usuario: (\\d+)").matcher(serial);
+        while (m.find()) porRoom.put(m.group(1), Integer.parseInt(m.group(2)));
+        List<String> filas = Files.readAllLines(plano, StandardCharsets.UTF_8);
+        assertEquals(InteractionJoin.COLUMNAS, filas.get(0));
+        Map<String, Integer> cruzadas = new HashMap<>();
+        for (String fila : filas.subList(1, filas.size())) cruzadas.merge(fila.split(",")[2], 1, Integer::sum);
+        assertEquals(30, porRoom.size());
+        assertEquals(porRoom, cruzadas);
+
+        byte[] bytes = Files.readAllBytes(simLog);
+        int mitad = corteDeLinea(bytes, bytes.length / 2);
+        Path gz = tmp.resolve("sim.log.gz");
+        Files.write(gz, gzip(Arrays.copyOf(bytes, mitad)));
+        Files.write(gz, gzip(Arrays.copyOfRange(bytes, mitad, bytes.length)), StandardOpenOption.APPEND);
+        Path comprimido = tmp.resolve("gz.csv");
+        reporte(gz, "--join=" + comprimido, "--pipeline=3");
+        assertEquals(filas, Files.readAllLines(comprimido, StandardCharsets.UTF_8));
+
+        Path actual = tmp.resolve("rot.log");
+        Files.write(tmp.resolve("rot.log.1.gz"), gzip(Arrays.copyOf(bytes, mitad)));
+        Files.write(actual, Arrays.copyOfRange(bytes, mitad, bytes.length));
+        Path rotado = tmp.resolve("rot.csv");
+        reporte(actual, "--join=" + rotado, "--rotados");
+        assertEquals(filas, Files.readAllLines(rotado, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reglas de alerta: los mismos eventos leyendo en serie, con --pipeline, con
+     * --parallel (que pasa a leer en orden) y con el log repartido en dos; el
+     * reporte no cambia.
+     */
+    @Test
+    void alertasEnTodosLosCaminos() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = (ObjectNode) mapper.readTree(config.toFile());
+        ArrayNode reglas = root.putArray("alertas");
+        reglas.addObject().put("regla", AnomalyDetector.FUERA_DE_RANGO).put("duracion", "30s");
+        reglas.addObject().put("regla", AnomalyDetector.CARGA_ALTA).put("umbral", "24 kWh").put("duracion", "5s");
+        reglas.addObject().put("regla", AnomalyDetector.HEATER_SIN_EFECTO).put("duracion", "20s").put("caida", "0.1");
+        Path conAlertas = tmp.resolve("simulation_config.json");
+        mapper.writeValue(conAlertas.toFile(), root);
+
+        Path serie = tmp.resolve("serie.jsonl");
+        assertTrue(reporte(simLog.toString(), conAlertas, "--alertas=" + serie).startsWith(serial));
+        List<String> eventos = Files.readAllLines(serie, StandardCharsets.UTF_8);
+        // Con el heater encendido la temperatura generada siempre sube: heater-sin-efecto no salta
+        for (String regla : List.of(AnomalyDetector.FUERA_DE_RANGO, AnomalyDetector.CARGA_ALTA)) {
+            assertTrue(eventos.stream().anyMatch(e -> e.contains("\"regla\":\"" + regla + "\"")), regla);
+        }
+
+        Path pipeline = tmp.resolve("pipeline.jsonl");
+        reporte(simLog.toString(), conAlertas, "--alertas=" + pipeline, "--pipeline=3");
+        assertEquals(eventos, Files.readAllLines(pipeline, StandardCharsets.UTF_8));
+
+        Path paralelo = tmp.resolve("paralelo.jsonl");
+        reporte(simLog.toString(), conAlertas, "--alertas=" + paralelo, "--parallel=4");
+        assertEquals(eventos, Files.readAllLines(paralelo, StandardCharsets.UTF_8));
+
+        Pattern room = Pattern.compile("\"roomId\":(\\d+)");
+        List<String> impares = new ArrayList<>();
+        List<String> resto = new ArrayList<>();
+        for (String line : Files.readAllLines(simLog, StandardCharsets.UTF_8)) {
+            Matcher m = room.matcher(line);
+            boolean impar = m.find() && Integer.parseInt(m.group(1)) % 2 == 1;
+            (impar ? impares : resto).add(line);
+        }
+        Path a = Files.write(tmp.resolve("sim-a.log"), impares, StandardCharsets.UTF_8);
+        Path b = Files.write(tmp.resolve("sim-b.log"), resto, StandardCharsets.UTF_8);
+        Path mezclados = tmp.resolve("mezclados.jsonl");
+        reporte(a + "," + b, conAlertas, "--alertas=" + mezclados);
+        // Dentro de un mismo simTimeMs la mezcla toma primero los rooms de un log:
+        // cambia el orden de los eventos de ese instante, no cuáles son
+        List<String> ordenados = new ArrayList<>(eventos);
+        List<String> deLaMezcla = new ArrayList<>(Files.readAllLines(mezclados, StandardCharsets.UTF_8));
+        ordenados.sort(null);
+        deLaMezcla.sort(null);
+        assertEquals(ordenados, deLaMezcla);
+    }
+
+    /** La primera corrida con --cache arma la caché columnar; la segunda la recorre. */
+    @Test
+    void cacheColumnar() throws IOException {
+        Path log = Files.copy(simLog, tmp.resolve("sim.log"));
+        assertEquals(serial, reporte(log, "--cache", "--parallel=4"));
+        assertTrue(Files.exists(ColumnarCache.sidecar(log)));
+        assertEquals(serial, reporte(log, "--cache"));
+        assertEquals(serial, reporte(log, "--cache", "--parallel=4"));
+    }
+
+    /**
+     * --from/--to: la primera corrida arma el índice recorriendo todo el log; las
+     * siguientes leen sólo los bloques del rango, en serie o repartidos entre hilos.
+     */
+    @Test
+    void rangoConIndice() throws IOException {
+        Path log = Files.copy(simLog, tmp.resolve("sim.log"));
+        String[] rango = {"--from=500s", "--to=3500s"};
+        String completo = reporte(log, rango[0], rango[1], "--parallel=4");
+        assertTrue(completo.contains(" en el rango: "), completo);
+        assertTrue(Files.exists(SparseTimeIndex.sidecar(log)));
+
+        assertEquals(completo, reporte(log, rango));
+        assertEquals(completo, reporte(log, rango[0], rango[1], "--parallel=4"));
+
+        // El rango contiguo llega del índice como un solo tramo y se vuelve a cortar
+        long[] ranges = SparseTimeIndex.open(log).ranges(500_000, 3_500_000);
+        assertEquals(2, ranges.length);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long[] parts = SimIngest.splitRanges(channel, ranges, 4);
+            assertTrue(parts.length > 2, Arrays.toString(parts));
+            assertEquals(ranges[0], parts[0]);
+            assertEquals(ranges[1], parts[parts.length - 1]);
+        }
+    }
+
+    /**
+     * --follow cortado a mitad de una línea, detenido y retomado desde el checkpoint
+     * después de que los logs crecieron: el estado final es el de leerlos de corrido.
+     */
+    @Test
+    void followRetomadoDesdeCheckpoint() throws IOException {
+        Path sim = tmp.resolve("sim.log");
+        Path http = tmp.resolve("http.log");
+        byte[] simBytes = Files.readAllBytes(simLog);
+        byte[] httpBytes = Files.readAllBytes(httpLog);
+        Files.write(sim, Arrays.copyOf(simBytes, simBytes.length / 2));
+        Files.write(http, Arrays.copyOf(httpBytes, httpBytes.length / 2));
+
+        SimulationConfig cfg = SimulationConfig.load(config, new ObjectMapper());
+        Opciones opciones = Opciones.parse(new String[] {
+                "--follow", "--checkpoint=" + tmp.resolve("follow.ck")}, 0);
+
+        FollowSession primera = new FollowSession(sim, config, http,
+                SimAggregator.create(cfg), new HttpInteractions(), opciones, METRICAS);
+        primera.poll();
+        primera.save();
+
+        Files.write(sim, Arrays.copyOfRange(simBytes, simBytes.length / 2, simBytes.length),
+                StandardOpenOption.APPEND);
+        Files.write(http, Arrays.copyOfRange(httpBytes, httpBytes.length / 2, httpBytes.length),
+                StandardOpenOption.APPEND);
+
+        SimAggregator retomado = SimAggregator.create(cfg);
+        FollowSession segunda = new FollowSession(sim, config, http,
+                retomado, new HttpInteractions(), opciones, METRICAS);
+        assertTrue(segunda.restore());
+        segunda.poll();
+
+        SimAggregator corrido = SimAggregator.create(cfg);
+        SimIngest.ingest(simLog, corrido, cfg, new Opciones());
+        new HttpInteractions().ingest(httpLog, corrido);
+
+        assertEquals(texto(corrido, cfg), texto(retomado, cfg));
+    }
+
+    /** Primer inicio de línea desde {@code pos}. */
+    private static int corteDeLinea(byte[] bytes, int pos) {
+        while (bytes[pos - 1] != '\n') pos++;
+        return pos;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(data);
+        }
+        return buf.toByteArray();
+    }
+
+    /** Lo que Analizador escribe en stdout para {@code log} con esas opciones. */
+    static String reporte(Path log, String... opciones) {
+        return reporte(log.toString(), opciones);
+    }
+
+    /** {@code logs}: un path, una lista separada por comas o un glob. */
+    static String reporte(String logs, String... opciones) {
+        return reporte(logs, config, opciones);
+    }
+
+    static String reporte(String logs, Path cfg, String... opciones) {
+        String[] args = new String[3 + opciones.length];
+        args[0] = logs;
+        args[1] = cfg.toString();
+        args[2] = httpLog.toString();
+        System.arraycopy(opciones, 0, args, 3, opciones.length);
+        return capturar(() -> Analizador.main(args));
+    }
+
+    /** El reporte de Analizador para un agregador ya cargado. */
+    static String texto(SimAggregator sim, SimulationConfig cfg) {
+        return capturar(() -> MetricPipeline.imprimirReporte(sim, cfg, Metrica.ANALIZADOR, Estilo.PLANO, System.out));
+    }
+
+    /** Con el charset por defecto, el mismo con el que los analizadores escriben a la consola. */
+    private static String capturar(Runnable accion) {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true));
+        try {
+            accion.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buf.toString();
+    }
+}
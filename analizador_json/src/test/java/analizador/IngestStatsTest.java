@@ -0,0 +1,39 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestStatsTest {
+
+    /** Dos corridas de un lote a la vez: cada una con sus MBeans, que se van al terminar. */
+    @Test
+    void mbeansPorCorrida() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        IngestStats a = new IngestStats();
+        IngestStats b = new IngestStats();
+        a.registrar("lote1_run");
+        b.registrar("lote2_run");
+        try {
+            ObjectName deA = new ObjectName("analizador:type=Ingesta,corrida=\"lote1_run\",etapa=simulador");
+            ObjectName deB = new ObjectName("analizador:type=Ingesta,corrida=\"lote2_run\",etapa=simulador");
+            assertTrue(server.isRegistered(deA));
+            assertTrue(server.isRegistered(deB));
+            assertEquals(4, server.queryNames(new ObjectName("analizador:type=Ingesta,*"), null).size());
+
+            a.desregistrar();
+            assertFalse(server.isRegistered(deA));
+            assertTrue(server.isRegistered(deB));
+        } finally {
+            a.desregistrar();
+            b.desregistrar();
+        }
+        assertTrue(server.queryNames(new ObjectName("analizador:type=Ingesta,*"), null).isEmpty());
+    }
+}
@@ -0,0 +1,74 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void ceroYExtremosSeGuardanComoCualquierClave() {
+        LongHashSet set = new LongHashSet();
+        for (long key : new long[] {0, -1, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            assertFalse(set.contains(key));
+            assertTrue(set.add(key));
+            assertFalse(set.add(key));
+            assertTrue(set.contains(key));
+        }
+        assertEquals(4, set.size());
+    }
+
+    /** Claves que comparten los bits bajos, como las empaquetadas de {@link SwitchDedup}. */
+    @Test
+    void creceIgualQueUnHashSet() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> esperado = new HashSet<>();
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int i = 0; i < 50_000; i++) {
+            long key = (rnd.nextLong(1_000_000) << 20) | 17;
+            assertEquals(esperado.add(key), set.add(key));
+        }
+        assertEquals(esperado.size(), set.size());
+        for (long key : esperado) assertTrue(set.contains(key));
+        assertFalse(set.contains((1_000_001L << 20) | 17));
+    }
+
+    @Test
+    void clearVaciaAunDespuesDeCrecer() {
+        LongHashSet set = new LongHashSet();
+        for (long key = 0; key < 10_000; key++) set.add(key);
+        set.clear();
+        assertEquals(0, set.size());
+        for (long key = 0; key < 10_000; key++) assertFalse(set.contains(key));
+        assertTrue(set.add(0));
+        assertTrue(set.add(9_999));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void checkpointConservaLasClaves() throws IOException {
+        LongHashSet set = new LongHashSet();
+        for (long key = -500; key <= 500; key++) set.add(key * 1_000_003);
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        set.write(new DataOutputStream(buf));
+        LongHashSet leido = new LongHashSet();
+        leido.add(42);
+        leido.read(new DataInputStream(new ByteArrayInputStream(buf.toByteArray())));
+
+        assertEquals(set.size(), leido.size());
+        for (long key = -500; key <= 500; key++) assertTrue(leido.contains(key * 1_000_003));
+        assertFalse(leido.contains(42));
+    }
+}
@@ -0,0 +1,61 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollupExportTest {
+
+    @TempDir
+    Path dir;
+
+    /** sitePeakKWh no depende de que se haya pedido PICO en --metricas. */
+    @Test
+    void picoDelSitioSinMetricaPico() throws IOException {
+        GeneradorLogs.Parametros p = new GeneradorLogs.Parametros();
+        p.rooms = 6;
+        p.ticks = 600;
+        GeneradorLogs.generar(dir, p);
+
+        Path sinPico = dir.resolve("sin-pico.csv");
+        Path conPico = dir.resolve("con-pico.csv");
+        analizar("--metricas=tarifa", "--buckets=1m", "--rollup=" + sinPico);
+        analizar("--metricas=todas", "--buckets=1m", "--rollup=" + conPico);
+
+        List<String> filas = Files.readAllLines(sinPico, StandardCharsets.UTF_8);
+        int col = Arrays.asList(filas.get(0).split(",")).indexOf("sitePeakKWh");
+        assertTrue(col >= 0, filas.get(0));
+        double max = 0;
+        for (String fila : filas.subList(1, filas.size())) {
+            max = Math.max(max, Double.parseDouble(fila.split(",")[col]));
+        }
+        assertTrue(max > 0, "sitePeakKWh en cero sin PICO");
+        assertEquals(Files.readAllLines(conPico, StandardCharsets.UTF_8), filas);
+    }
+
+    private void analizar(String... opciones) {
+        String[] args = new String[3 + opciones.length];
+        args[0] = dir.resolve(GeneradorLogs.SIM_LOG).toString();
+        args[1] = dir.resolve(GeneradorLogs.CONFIG).toString();
+        args[2] = dir.resolve(GeneradorLogs.HTTP_LOG).toString();
+        System.arraycopy(opciones, 0, args, 3, opciones.length);
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        try {
+            Analizador.main(args);
+        } finally {
+            System.setOut(original);
+        }
+    }
+}
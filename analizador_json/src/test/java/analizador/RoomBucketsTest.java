@@ -0,0 +1,96 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomBucketsTest {
+
+    private static final long MS = 1_000;
+
+    @Test
+    void creceHaciaAdelante() {
+        RoomBuckets b = new RoomBuckets(MS);
+        b.tick(5_000, true);
+        b.tick(40_500, false);
+        assertEquals(5, b.first());
+        assertEquals(36, b.size());
+        assertEquals(1, b.lowTicks(0));
+        assertEquals(1, b.highTicks(35));
+        for (int k = 1; k < 35; k++) {
+            assertEquals(0, b.lowTicks(k) + b.highTicks(k));
+        }
+    }
+
+    /** Un bucket anterior al primero corre lo que había sin perderlo, también con simTimeMs negativos. */
+    @Test
+    void creceHaciaAtras() {
+        RoomBuckets b = new RoomBuckets(MS);
+        b.tick(5_000, true);
+        b.tick(9_500, false);
+        b.tick(-1_500, true);
+        assertEquals(-2, b.first());
+        assertEquals(12, b.size());
+        assertEquals(1, b.lowTicks(0));
+        assertEquals(1, b.lowTicks(7));
+        assertEquals(1, b.highTicks(11));
+
+        // Más allá de la capacidad inicial, de los dos lados
+        b.tick(-30_000, false);
+        b.tick(59_999, true);
+        assertEquals(-30, b.first());
+        assertEquals(90, b.size());
+        assertEquals(1, b.highTicks(0));
+        assertEquals(1, b.lowTicks(28));
+        assertEquals(1, b.lowTicks(35));
+        assertEquals(1, b.highTicks(39));
+        assertEquals(1, b.lowTicks(89));
+    }
+
+    @Test
+    void bucketsNuevosQuedanVacios() {
+        RoomBuckets b = new RoomBuckets(MS);
+        b.accept(registro(10_000, 21.0, 100), 21.0, false, false);
+        b.accept(registro(2_000, 19.0, 50), 21.0, false, false);
+        b.accept(registro(14_000, 22.0, 150), 21.0, false, false);
+        assertEquals(2, b.first());
+        assertEquals(13, b.size());
+        for (int k = 1; k < 12; k++) {
+            if (k == 8) continue;
+            assertEquals(0, b.samples(k));
+            assertTrue(Double.isNaN(b.minTemp(k)));
+        }
+        assertEquals(19.0, b.minTemp(0));
+        assertEquals(21.0, b.maxTemp(8));
+        assertEquals(22.0, b.meanTemp(12));
+    }
+
+    /** El tramo siguiente del log puede traer buckets anteriores al primero (p. ej. un reinicio del simulador). */
+    @Test
+    void mergeConBucketsAnteriores() {
+        RoomBuckets a = new RoomBuckets(MS);
+        a.accept(registro(10_000, 21.0, 100), 21.0, false, false);
+        RoomBuckets siguiente = new RoomBuckets(MS);
+        siguiente.accept(registro(3_000, 20.0, 40), 21.0, false, false);
+        siguiente.accept(registro(10_200, 23.0, 120), 21.0, false, false);
+
+        a.merge(siguiente);
+        assertEquals(3, a.first());
+        assertEquals(8, a.size());
+        assertEquals(1, a.samples(0));
+        assertEquals(2, a.samples(7));
+        assertEquals(21.0, a.minTemp(7));
+        assertEquals(23.0, a.maxTemp(7));
+    }
+
+    private static SimRecord registro(long simTimeMs, double tempC, double energyWh) {
+        SimRecord rec = new SimRecord();
+        rec.roomId = 1;
+        rec.simTimeMs = simTimeMs;
+        rec.tempC = tempC;
+        rec.energyWh = energyWh;
+        rec.hasEnergyWh = true;
+        return rec;
+    }
+}
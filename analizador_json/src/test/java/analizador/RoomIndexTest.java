@@ -0,0 +1,48 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RoomIndexTest {
+
+    /** Configurados y después los del log, dentro y fuera del rango denso: slots en ese orden. */
+    @Test
+    void slotsEnOrdenDeAparicion() {
+        RoomIndex<RoomStats> index = new RoomIndex<>(new int[] {3, 1, 2});
+        int[] ids = {3, 1, 2, 7, -5, 1_000_000, 4};
+        for (int id : ids) index.add(id, new RoomStats(true));
+
+        assertEquals(ids.length, index.size());
+        for (int s = 0; s < ids.length; s++) {
+            assertEquals(ids[s], index.id(s));
+            assertEquals(s, index.slot(ids[s]));
+            assertSame(index.at(s), index.get(ids[s]));
+        }
+        assertEquals(-1, index.slot(5));
+        assertNull(index.get(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void idsDispersosCrecenIgualQueUnMapa() {
+        RoomIndex<RoomStats> index = new RoomIndex<>(new int[] {1, 1_000_000_000});
+        Map<Integer, Integer> esperado = new HashMap<>();
+        SplittableRandom rnd = new SplittableRandom(11);
+        for (int i = 0; i < 20_000; i++) {
+            int id = rnd.nextInt();
+            if (esperado.containsKey(id)) continue;
+            esperado.put(id, index.add(id, new RoomStats(false)));
+        }
+        esperado.forEach((id, slot) -> assertEquals((int) slot, index.slot(id)));
+
+        index.clear();
+        assertEquals(0, index.size());
+        esperado.keySet().forEach(id -> assertEquals(-1, index.slot(id)));
+    }
+}
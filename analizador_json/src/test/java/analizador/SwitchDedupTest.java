@@ -0,0 +1,119 @@
+package analizador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwitchDedupTest {
+
+    private static final String T0 = "2024-05-01T10:00:00.000Z";
+    private static final String T0_5 = "2024-05-01T10:00:00.500Z";
+    private static final String T1 = "2024-05-01T10:00:01.000Z";
+    private static final String T2 = "2024-05-01T10:00:02.000Z";
+    private static final String T5 = "2024-05-01T10:00:05.000Z";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sinVentanaRecuerdaTodo() {
+        SwitchDedup dedup = new SwitchDedup();
+        assertTrue(dedup.firstSeen(1, T0));
+        assertTrue(dedup.firstSeen(2, T0));
+        assertTrue(dedup.firstSeen(1, T5));
+        assertFalse(dedup.firstSeen(1, T0));
+        assertEquals(3, dedup.size());
+    }
+
+    /** Una clave vive entre una y dos ventanas: sobrevive a la primera rotación, no a la segunda. */
+    @Test
+    void rotacionDeGeneraciones() {
+        SwitchDedup dedup = new SwitchDedup(1_000);
+        assertTrue(dedup.firstSeen(1, T0));
+        assertFalse(dedup.firstSeen(1, T0));
+        assertTrue(dedup.firstSeen(1, T0_5));
+
+        // Primera rotación: T0 y T0_5 pasan a la generación anterior
+        assertTrue(dedup.firstSeen(1, T1));
+        assertFalse(dedup.firstSeen(1, T0));
+        assertFalse(dedup.firstSeen(1, T0_5));
+        assertEquals(3, dedup.size());
+
+        // Segunda rotación: se olvida la generación de T0
+        assertTrue(dedup.firstSeen(1, T2));
+        assertFalse(dedup.firstSeen(1, T1));
+        assertTrue(dedup.firstSeen(1, T0));
+        assertEquals(3, dedup.size());
+    }
+
+    @Test
+    void saltoDeMasDeDosVentanasOlvidaTodo() {
+        SwitchDedup dedup = new SwitchDedup(1_000);
+        assertTrue(dedup.firstSeen(1, T0));
+        assertTrue(dedup.firstSeen(1, T1));
+        assertTrue(dedup.firstSeen(1, T5));
+        assertEquals(1, dedup.size());
+        assertTrue(dedup.firstSeen(1, T1));
+    }
+
+    /** Los timestamps que no entran en la clave empaquetada rotan con las mismas generaciones. */
+    @Test
+    void clavesDeTextoTambienRotan() {
+        SwitchDedup dedup = new SwitchDedup(1_000);
+        String raro = "ayer a la tarde";
+        assertTrue(dedup.firstSeen(1, T0));
+        assertTrue(dedup.firstSeen(1, raro));
+        assertFalse(dedup.firstSeen(1, raro));
+        assertTrue(dedup.firstSeen(1, T1));
+        assertFalse(dedup.firstSeen(1, raro));
+        assertTrue(dedup.firstSeen(1, T2));
+        assertTrue(dedup.firstSeen(1, raro));
+    }
+
+    /** La clave es el instante, no el texto: el mismo momento escrito de otra forma es duplicado. */
+    @Test
+    void mismoInstanteEscritoDistinto() {
+        SwitchDedup dedup = new SwitchDedup();
+        assertTrue(dedup.firstSeen(1, "2024-05-01T10:00:00Z"));
+        assertFalse(dedup.firstSeen(1, T0));
+        assertFalse(dedup.firstSeen(1, "2024-05-01T10:00:00+00:00"));
+        assertFalse(dedup.firstSeen(1, "2024-05-01T12:00:00.000+02:00"));
+        assertEquals(1, dedup.size());
+    }
+
+    /** Lo mismo con el id del path: "/switch/012" y "/switch/12" son el mismo room. */
+    @Test
+    void mismoRoomEscritoDistinto() throws IOException {
+        Path config = Files.writeString(dir.resolve("config.json"), "{}");
+        Path log = Files.writeString(dir.resolve("access.log"), String.join("\n",
+                post("/switch/12", "2024-05-01T10:00:00Z"),
+                post("/switch/012", "2024-05-01T10:00:00.000Z"),
+                post("/switch/12", "2024-05-01T10:00:00+00:00"),
+                post("/switch/12", T1)) + "\n", StandardCharsets.UTF_8);
+
+        SimAggregator sim = SimAggregator.create(SimulationConfig.load(config, new ObjectMapper()));
+        new HttpInteractions().ingest(log, sim);
+        assertEquals(2, sim.room(12).userInteractions);
+    }
+
+    @Test
+    void epochMillis() {
+        assertEquals(1_714_557_600_000L, SwitchDedup.epochMillis(T0));
+        assertEquals(1_714_557_600_500L, SwitchDedup.epochMillis("2024-05-01T12:00:00.5+02:00"));
+        assertEquals(SwitchDedup.NO_EPOCH, SwitchDedup.epochMillis("2024-02-30T10:00:00Z"));
+        assertEquals(SwitchDedup.NO_EPOCH, SwitchDedup.epochMillis("2024-05-01T10:00:00.0001Z"));
+    }
+
+    private static String post(String path, String timestamp) {
+        return "{\"@timestamp\":\"" + timestamp + "\",\"method\":\"POST\",\"path\":\"" + path + "\",\"status\":200}";
+    }
+}